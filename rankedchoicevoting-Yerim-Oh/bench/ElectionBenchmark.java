@@ -0,0 +1,283 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks the ranked choice voting engine on synthetic elections.  Five
+ * phases are measured separately:
+ * 
+ * 1. parse: loading an election file with ElectionLoader.
+ * 2. add: validating and storing ballots with Election.addBallot.
+ * 3. select: a full Election.selectWinner run on an election that is already
+ * loaded.
+ * 4. stv: a full Election.selectWinners count for several seats on an 
+ * election that is already loaded.  It only runs when asked for.
+ * 5. pairwise: counting a PairwiseMatrix on an election that is already 
+ * loaded, on the given number of threads.  It only runs when asked for.
+ * 
+ * Every phase runs for each combination of distribution, candidate count and
+ * ballot count.  Each combination is run a few times to warm up and then
+ * measured, and the report gives the average time per run and per ballot,
+ * the bytes allocated per run by the benchmark thread, and the garbage 
+ * collections during the measured runs.  The allocation column counts only
+ * the thread that calls each phase: the pool threads of a parallel count
+ * finish within the run and the JVM stops reporting their allocations, so
+ * with more than one thread the select and pairwise phases allocate more than
+ * the column shows.
+ * 
+ * Compile it together with the classes in src and run it with any of these
+ * options, each taking a comma separated list:
+ *     java ElectionBenchmark [-phases parse,add,select]
+ *         [-distributions UNIFORM,POLARIZED,LONG_TAIL] [-candidates 3,20,200]
+ *         [-ballots 10000,1000000] [-threads 1] [-seats 9] [-runs 5]
+ * The default ballot counts are 10,000 and 1,000,000.  Larger elections, up
+ * to 50,000,000 ballots, need a heap of about 2 * candidates * ballots bytes
+ * and, for the parse phase, as much free disk space for the election file.
+ */
+public class ElectionBenchmark {
+    private static final long SEED = 225;
+    private static final int WARMUP_RUNS = 2;
+
+    private static List<String> phases = split("parse,add,select");
+    private static List<ElectionGenerator.Distribution> distributions =
+            distributions("UNIFORM,POLARIZED,LONG_TAIL");
+    private static List<Integer> candidateCounts = numbers("3,20,200");
+    private static List<Integer> ballotCounts = numbers("10000,1000000");
+    private static int threads = 1;
+    private static int seats = 9;
+    private static int runs = 5;
+
+    // Holds the result of each run so that the work cannot be optimized away.
+    static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                System.err.println("Option " + args[i] + " needs a value");
+                return;
+            }
+            String value = args[i + 1];
+            try {
+                switch (args[i]) {
+                case "-phases": phases = split(value); break;
+                case "-distributions": distributions = distributions(value); break;
+                case "-candidates": candidateCounts = numbers(value); break;
+                case "-ballots": ballotCounts = numbers(value); break;
+                case "-threads": threads = Integer.parseInt(value); break;
+                case "-seats": seats = Integer.parseInt(value); break;
+                case "-runs": runs = Integer.parseInt(value); break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    return;
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("Bad value for " + args[i] + ": " + value);
+                return;
+            }
+        }
+
+        System.out.printf("%-7s %-10s %10s %10s %12s %12s %14s %8s%n", "phase",
+                          "dist", "candidates", "ballots", "ms/run", 
+                          "ns/ballot", "caller B/run", "gc ms");
+        for (String phase : phases) {
+            for (ElectionGenerator.Distribution distribution : distributions) {
+                for (int candidates : candidateCounts) {
+                    for (int ballots : ballotCounts) {
+                        run(phase, distribution, candidates, ballots);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Benchmarks one phase on one kind of election and prints a line of the
+     * report.
+     */
+    private static void run(String phase, ElectionGenerator.Distribution distribution,
+                            int numCandidates, int numBallots) throws Exception {
+        Phase work;
+        Path file = null;
+        switch (phase) {
+        case "parse":
+            file = Files.createTempFile("election", ".txt");
+            new ElectionGenerator(distribution, numCandidates, SEED)
+                    .writeElectionFile(file, numBallots);
+            Path electionFile = file;
+            work = new Phase() {
+                public void run() throws Exception {
+                    sink = ElectionLoader.load(electionFile);
+                }
+            };
+            break;
+        case "add":
+            work = new Phase() {
+                private ElectionGenerator generator;
+                private int[][] ballots;
+                private Election election;
+
+                public void setUp() {
+                    // Draw the ballots before timing, reusing a pool of at
+                    // most 65536 so large runs do not need them all in memory.
+                    if (ballots == null) {
+                        generator = new ElectionGenerator(distribution, 
+                                                          numCandidates, SEED);
+                        ballots = new int[Math.min(numBallots, 1 << 16)][];
+                        for (int b = 0; b < ballots.length; b++) {
+                            ballots[b] = generator.nextBallot().clone();
+                        }
+                    }
+                    election = generator.newElection();
+                }
+
+                public void run() {
+                    int next = 0;
+                    for (int b = 0; b < numBallots; b++) {
+                        election.addBallot(ballots[next]);
+                        if (++next == ballots.length) {
+                            next = 0;
+                        }
+                    }
+                    sink = election;
+                }
+            };
+            break;
+        case "select":
+            work = new Phase() {
+                private Election election;
+
+                public void setUp() {
+                    election = new ElectionGenerator(distribution, numCandidates, 
+                                                     SEED).newElection(numBallots);
+                    election.setParallelism(threads);
+                }
+
+                public void run() {
+                    sink = election.selectWinner();
+                }
+            };
+            break;
+        case "stv":
+            work = new Phase() {
+                private Election election;
+
+                public void setUp() {
+                    election = new ElectionGenerator(distribution, numCandidates, 
+                                                     SEED).newElection(numBallots);
+                }
+
+                public void run() {
+                    sink = election.selectWinners(seats);
+                }
+            };
+            break;
+        case "pairwise":
+            work = new Phase() {
+                private Election election;
+
+                public void setUp() {
+                    election = new ElectionGenerator(distribution, numCandidates, 
+                                                     SEED).newElection(numBallots);
+                }
+
+                public void run() {
+                    sink = new PairwiseMatrix(election, threads);
+                }
+            };
+            break;
+        default:
+            System.err.println("Unknown phase " + phase);
+            return;
+        }
+
+        try {
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                work.setUp();
+                work.run();
+            }
+            long elapsed = 0;
+            long allocated = 0;
+            long gcStart = gcMillis();
+            for (int i = 0; i < runs; i++) {
+                work.setUp();
+                long allocatedBefore = allocatedBytes();
+                long start = System.nanoTime();
+                work.run();
+                elapsed += System.nanoTime() - start;
+                allocated += allocatedBytes() - allocatedBefore;
+            }
+            long gc = gcMillis() - gcStart;
+            double nanosPerRun = (double) elapsed / runs;
+            System.out.printf("%-7s %-10s %10d %10d %12.2f %12.1f %14d %8d%n", 
+                              phase, distribution, numCandidates, numBallots,
+                              nanosPerRun / 1e6, nanosPerRun / numBallots, 
+                              allocated / runs, gc);
+        } finally {
+            if (file != null) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * A phase to benchmark.  setUp is called before each run and is not
+     * timed.
+     */
+    private abstract static class Phase {
+        public void setUp() throws Exception {
+        }
+
+        public abstract void run() throws Exception;
+    }
+
+    /**
+     * @return the bytes allocated so far by this thread, or 0 if the JVM
+     * does not report it
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    /**
+     * @return the total time spent in garbage collection so far
+     */
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static List<ElectionGenerator.Distribution> distributions(String list) {
+        List<ElectionGenerator.Distribution> values = new ArrayList<>();
+        for (String value : split(list)) {
+            values.add(ElectionGenerator.Distribution.valueOf(value));
+        }
+        return values;
+    }
+
+    private static List<Integer> numbers(String list) {
+        List<Integer> values = new ArrayList<>();
+        for (String value : split(list)) {
+            values.add(Integer.parseInt(value));
+        }
+        return values;
+    }
+
+    private static List<String> split(String list) {
+        List<String> values = new ArrayList<>();
+        for (String value : list.split(",")) {
+            values.add(value.trim());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,151 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * An ElectionGenerator produces synthetic ballots for benchmarking.  Each
+ * ballot is a random ranking in which candidate c is drawn ahead of the 
+ * others with a probability proportional to a popularity weight, so the
+ * distribution decides how the first preferences, and the transfers, are
+ * spread between the candidates.
+ *
+ * The same seed always produces the same ballots.
+ */
+public class ElectionGenerator {
+    /**
+     * How voters' preferences are spread across the candidates.
+     */
+    public enum Distribution {
+        /** Every candidate is equally popular. */
+        UNIFORM,
+        /** Two blocs of voters, each strongly favouring one half of the 
+         * candidates. */
+        POLARIZED,
+        /** A few popular candidates and a long tail of minor ones, with 
+         * popularity falling off as 1 / rank. */
+        LONG_TAIL
+    }
+
+    private final int numCandidates;
+    private final Random random;
+
+    // The popularity weight of each candidate for each bloc of voters.
+    private final double[][] blocWeights;
+
+    // Scratch space for drawing a ballot.  The ranks array is returned to
+    // callers and overwritten by the next ballot.
+    private final double[] keys;
+    private final Integer[] order;
+    private final int[] ranks;
+
+    /**
+     * Create a generator.
+     * @param distribution how preferences are spread across candidates
+     * @param numCandidates the number of candidates on each ballot
+     * @param seed the seed for the random ballots
+     */
+    public ElectionGenerator(Distribution distribution, int numCandidates,
+                             long seed) {
+        this.numCandidates = numCandidates;
+        this.random = new Random(seed);
+        this.keys = new double[numCandidates];
+        this.order = new Integer[numCandidates];
+        this.ranks = new int[numCandidates];
+
+        switch (distribution) {
+        case POLARIZED:
+            blocWeights = new double[2][numCandidates];
+            for (int c = 0; c < numCandidates; c++) {
+                boolean firstHalf = c < (numCandidates + 1) / 2;
+                blocWeights[0][c] = firstHalf ? 10 : 1;
+                blocWeights[1][c] = firstHalf ? 1 : 10;
+            }
+            break;
+        case LONG_TAIL:
+            blocWeights = new double[1][numCandidates];
+            for (int c = 0; c < numCandidates; c++) {
+                blocWeights[0][c] = 1.0 / (c + 1);
+            }
+            break;
+        default:
+            blocWeights = new double[1][numCandidates];
+            for (int c = 0; c < numCandidates; c++) {
+                blocWeights[0][c] = 1;
+            }
+        }
+    }
+
+    /**
+     * Draws the next ballot.  Each candidate gets the key -ln(u) / weight for
+     * a uniform random u, and sorting by key gives a weighted random
+     * ranking.
+     * @return the ranks of the candidates, a permutation of 1 to n.  The
+     * array is reused by the next call.
+     */
+    public int[] nextBallot() {
+        double[] weights = blocWeights[random.nextInt(blocWeights.length)];
+        for (int c = 0; c < numCandidates; c++) {
+            keys[c] = -Math.log(1.0 - random.nextDouble()) / weights[c];
+            order[c] = c;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(keys[a], keys[b]));
+        for (int r = 0; r < numCandidates; r++) {
+            ranks[order[r]] = r + 1;
+        }
+        return ranks;
+    }
+
+    /**
+     * @return an election with the candidates named C0 to Cn-1 and no
+     * ballots
+     */
+    public Election newElection() {
+        Election election = new Election(numCandidates);
+        for (int c = 0; c < numCandidates; c++) {
+            election.addCandidate("C" + c);
+        }
+        return election;
+    }
+
+    /**
+     * @param numBallots the number of ballots to draw
+     * @return an election holding the next numBallots ballots
+     */
+    public Election newElection(int numBallots) {
+        Election election = newElection();
+        for (int b = 0; b < numBallots; b++) {
+            election.addBallot(nextBallot());
+        }
+        return election;
+    }
+
+    /**
+     * Writes an election file in the format read by RankedChoiceVoting.
+     * @param file the file to write
+     * @param numBallots the number of ballots to draw
+     */
+    public void writeElectionFile(Path file, int numBallots) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(Integer.toString(numCandidates));
+            out.newLine();
+            for (int c = 0; c < numCandidates; c++) {
+                out.write("C" + c);
+                out.newLine();
+            }
+            for (int b = 0; b < numBallots; b++) {
+                int[] ballot = nextBallot();
+                for (int c = 0; c < numCandidates; c++) {
+                    if (c > 0) {
+                        out.write(' ');
+                    }
+                    out.write(Integer.toString(ballot[c]));
+                }
+                out.newLine();
+            }
+        }
+    }
+}
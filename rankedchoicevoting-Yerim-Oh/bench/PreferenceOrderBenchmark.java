@@ -0,0 +1,161 @@
+import java.util.Random;
+
+/**
+ * Compares the two ways of representing a ballot while candidates are
+ * eliminated:
+ * 
+ * 1. Rank order, the original Ballot representation.  Each ballot holds the
+ * rank of every candidate, finding the top candidate scans the whole array,
+ * and eliminating a candidate overwrites their rank.
+ * 2. Preference order, the BallotStore representation.  Each ballot holds the
+ * candidate ids in the order the voter ranked them and a cursor to the
+ * current top choice.
+ * 
+ * For each candidate count the benchmark eliminates every candidate but one
+ * in a random order, moving every ballot to its next remaining preference 
+ * after each elimination, and reports the average time per ballot.
+ * 
+ * Compile it together with the classes in src and run it with an optional
+ * ballot count:
+ *     java PreferenceOrderBenchmark [ballots]
+ */
+public class PreferenceOrderBenchmark {
+    private static final int[] CANDIDATE_COUNTS = {3, 20, 50, 200};
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    public static void main(String[] args) {
+        int numBallots = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        Random random = new Random(225);
+        System.out.printf("%10s %16s %22s%n", "candidates", "rank ns/ballot",
+                          "preference ns/ballot");
+        for (int numCandidates : CANDIDATE_COUNTS) {
+            int[][] ballots = randomBallots(random, numBallots, numCandidates);
+            int[] eliminationOrder = randomPermutation(random, numCandidates);
+            double rankTime = time(() -> runRankOrder(ballots, eliminationOrder));
+            double preferenceTime = 
+                    time(() -> runPreferenceOrder(ballots, eliminationOrder));
+            System.out.printf("%10d %16.1f %22.1f%n", numCandidates,
+                              rankTime / numBallots, preferenceTime / numBallots);
+        }
+    }
+
+    /**
+     * @return the average nanoseconds taken by a run, after warming up
+     */
+    private static double time(Run run) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            sink += run.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            sink += run.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println();
+        }
+        return (double) elapsed / MEASURED_RUNS;
+    }
+
+    private interface Run {
+        long run();
+    }
+
+    /**
+     * Eliminates candidates using rank arrays, as Ballot did.
+     * @return a checksum of the top candidates seen, so the work is not
+     * optimized away
+     */
+    private static long runRankOrder(int[][] ballots, int[] eliminationOrder) {
+        int numCandidates = eliminationOrder.length;
+        int[][] ranks = new int[ballots.length][];
+        for (int b = 0; b < ballots.length; b++) {
+            ranks[b] = ballots[b].clone();
+        }
+        boolean[] eliminated = new boolean[numCandidates];
+        long checksum = 0;
+        for (int round = 0; round < numCandidates - 1; round++) {
+            eliminated[eliminationOrder[round]] = true;
+            for (int[] ballot : ranks) {
+                while (true) {
+                    int top = topByRank(ballot);
+                    if (!eliminated[top]) {
+                        checksum += top;
+                        break;
+                    }
+                    ballot[top] = numCandidates + 1;
+                }
+            }
+        }
+        return checksum;
+    }
+
+    private static int topByRank(int[] ranks) {
+        int topRank = ranks.length + 1;
+        int topIndex = -1;
+        for (int i = 0; i < ranks.length; i++) {
+            if (ranks[i] < topRank) {
+                topRank = ranks[i];
+                topIndex = i;
+            }
+        }
+        return topIndex;
+    }
+
+    /**
+     * Eliminates candidates using a BallotStore.
+     * @return a checksum of the top candidates seen
+     */
+    private static long runPreferenceOrder(int[][] ballots,
+                                           int[] eliminationOrder) {
+        int numCandidates = eliminationOrder.length;
+        BallotStore store = new BallotStore(numCandidates, false);
+        for (int[] ballot : ballots) {
+            store.add(ballot);
+        }
+        BallotCursors cursors = new BallotCursors(store);
+        boolean[] eliminated = new boolean[numCandidates];
+        long checksum = 0;
+        for (int round = 0; round < numCandidates - 1; round++) {
+            eliminated[eliminationOrder[round]] = true;
+            for (int b = 0; b < store.size(); b++) {
+                int top = cursors.getTopCandidate(b);
+                while (eliminated[top]) {
+                    cursors.advance(b);
+                    top = cursors.getTopCandidate(b);
+                }
+                checksum += top;
+            }
+        }
+        return checksum;
+    }
+
+    private static int[][] randomBallots(Random random, int numBallots,
+                                         int numCandidates) {
+        int[][] ballots = new int[numBallots][];
+        for (int b = 0; b < numBallots; b++) {
+            int[] ranks = randomPermutation(random, numCandidates);
+            for (int i = 0; i < numCandidates; i++) {
+                ranks[i]++;
+            }
+            ballots[b] = ranks;
+        }
+        return ballots;
+    }
+
+    private static int[] randomPermutation(Random random, int n) {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+        return values;
+    }
+}
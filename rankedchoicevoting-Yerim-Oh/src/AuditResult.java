@@ -0,0 +1,159 @@
+/**
+ * An AuditResult summarizes the tabulations of an AuditSimulation: how often
+ * each candidate won, how often the count ended in a tie, and statistics of
+ * the winning margin.  The margin of a tabulation is the winner's votes minus
+ * the runner-up's votes in the final round, or 0 for a tie.
+ */
+public class AuditResult {
+    // The candidates' names, in ballot order.
+    private final String[] candidateNames;
+
+    // The number of tabulations each candidate won, and the number of ties.
+    private final long[] wins;
+    private long ties;
+
+    // The sums needed for the margin statistics.
+    private long trials;
+    private double marginSum;
+    private double marginSquareSum;
+    private long minMargin = Long.MAX_VALUE;
+    private long maxMargin = Long.MIN_VALUE;
+
+    /**
+     * Create an empty result.
+     * @param candidateNames the candidates' names, in ballot order
+     */
+    AuditResult(String[] candidateNames) {
+        this.candidateNames = candidateNames;
+        this.wins = new long[candidateNames.length];
+    }
+
+    /**
+     * Records the outcome of one tabulation.
+     * @param winner the index of the winner, or -1 for a tie
+     * @param margin the winning margin in ballots
+     */
+    void add(int winner, long margin) {
+        if (winner < 0) {
+            ties++;
+        }
+        else {
+            wins[winner]++;
+        }
+        trials++;
+        marginSum += margin;
+        marginSquareSum += (double) margin * margin;
+        minMargin = Math.min(minMargin, margin);
+        maxMargin = Math.max(maxMargin, margin);
+    }
+
+    /**
+     * Adds the outcomes recorded in another result.
+     * @param other a result for the same candidates
+     */
+    void addAll(AuditResult other) {
+        for (int c = 0; c < wins.length; c++) {
+            wins[c] += other.wins[c];
+        }
+        ties += other.ties;
+        trials += other.trials;
+        marginSum += other.marginSum;
+        marginSquareSum += other.marginSquareSum;
+        minMargin = Math.min(minMargin, other.minMargin);
+        maxMargin = Math.max(maxMargin, other.maxMargin);
+    }
+
+    /**
+     * @return the number of tabulations
+     */
+    public long getTrials() {
+        return trials;
+    }
+
+    /**
+     * @return the number of candidates
+     */
+    public int getCandidateCount() {
+        return candidateNames.length;
+    }
+
+    /**
+     * @param candidate the index of a candidate
+     * @return the candidate's name
+     */
+    public String getCandidateName(int candidate) {
+        return candidateNames[candidate];
+    }
+
+    /**
+     * @param candidate the index of a candidate
+     * @return the number of tabulations the candidate won
+     */
+    public long getWins(int candidate) {
+        return wins[candidate];
+    }
+
+    /**
+     * @return the number of tabulations that ended in a tie
+     */
+    public long getTies() {
+        return ties;
+    }
+
+    /**
+     * @return the mean winning margin, in ballots
+     */
+    public double getMeanMargin() {
+        return trials == 0 ? 0 : marginSum / trials;
+    }
+
+    /**
+     * @return the standard deviation of the winning margin, in ballots
+     */
+    public double getMarginStandardDeviation() {
+        if (trials < 2) {
+            return 0;
+        }
+        double mean = getMeanMargin();
+        double variance = (marginSquareSum - trials * mean * mean) / (trials - 1);
+        return Math.sqrt(Math.max(variance, 0));
+    }
+
+    /**
+     * @return the smallest winning margin, in ballots
+     */
+    public long getMinMargin() {
+        return trials == 0 ? 0 : minMargin;
+    }
+
+    /**
+     * @return the largest winning margin, in ballots
+     */
+    public long getMaxMargin() {
+        return trials == 0 ? 0 : maxMargin;
+    }
+
+    /**
+     * @return a table of each candidate's wins followed by the margin
+     * statistics
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-24s %10s %8s%n", "candidate", "wins", "share"));
+        for (int c = 0; c < wins.length; c++) {
+            if (wins[c] > 0) {
+                report.append(String.format("%-24s %10d %7.2f%%%n", candidateNames[c],
+                        wins[c], 100.0 * wins[c] / trials));
+            }
+        }
+        if (ties > 0) {
+            report.append(String.format("%-24s %10d %7.2f%%%n", "(tie)", ties,
+                    100.0 * ties / trials));
+        }
+        report.append(String.format("margin: mean %.1f, std dev %.1f, min %d, max %d%n",
+                getMeanMargin(), getMarginStandardDeviation(), getMinMargin(),
+                getMaxMargin()));
+        return report.toString();
+    }
+}
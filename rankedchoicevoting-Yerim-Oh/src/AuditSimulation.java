@@ -0,0 +1,280 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * An AuditSimulation tabulates resampled versions of an election many times,
+ * to see how sensitive its outcome is to the exact set of ballots, as in a
+ * risk-limiting audit.  Each trial draws a bootstrap sample of the ballots
+ * and counts it with Election.selectWinner, with the election's batch
+ * elimination and tie break settings, so a trial without resampling always
+ * agrees with the election itself.
+ *
+ * The ballots are read once from the election and never changed, so any
+ * number of trials can share them.  A bootstrap sample is represented by a
+ * new weight for each ballot group: every group's weight is drawn from a
+ * Poisson distribution with its original weight as the mean, which
+ * approximates resampling all of the ballots with replacement but takes one
+ * draw per group rather than one per ballot.  Each thread reuses one array
+ * of weights, and one listener that reads the winner and margin, for all of
+ * its trials.  Everything else a trial needs is made new by the trial, as
+ * for any call to selectWinner: an Election that shares the ballot groups
+ * and the thread's weights, its candidates and their ballot lists, a cursor
+ * for each ballot group, and a report of each round.  That is O(groups +
+ * rounds * candidates) of allocation a trial, the same order as drawing the
+ * weights.
+ *
+ * Trials run in parallel on a fork/join pool.  Every trial has its own
+ * random number generator, seeded from the simulation's seed and the trial
+ * number, so the result does not depend on the number of threads.
+ */
+public class AuditSimulation {
+    // Weights below this are drawn exactly, larger ones from the normal
+    // approximation to the Poisson distribution.
+    private static final int EXACT_POISSON_LIMIT = 30;
+
+    // How to run the simulation from the command line.
+    private static final String USAGE = 
+            "Usage: java AuditSimulation election-file [trials] [threads] [seed]";
+
+    // POISSON_CDF[m][k] is the probability that a Poisson variable with mean
+    // m is at most k, up to the k at which it reaches 1 in double precision,
+    // so a small weight is drawn with one uniform number and a short search.
+    private static final double[][] POISSON_CDF = new double[EXACT_POISSON_LIMIT][];
+    static {
+        for (int mean = 0; mean < EXACT_POISSON_LIMIT; mean++) {
+            double[] cdf = new double[4 * mean + 40];
+            double probability = Math.exp(-mean);
+            double total = 0;
+            int k = 0;
+            while (k < cdf.length) {
+                total += probability;
+                cdf[k] = total;
+                k++;
+                if (total >= 1 - 1e-15) {
+                    break;
+                }
+                probability *= (double) mean / k;
+            }
+            POISSON_CDF[mean] = Arrays.copyOf(cdf, k);
+        }
+    }
+
+    // The election, whose settings every trial is counted with.
+    private final Election election;
+
+    // The ballots, and the weight of each group.
+    private final BallotStore ballots;
+    private final int[] weights;
+    private final int numGroups;
+
+    private final String[] candidateNames;
+
+    /**
+     * Create a simulation of an election.  No more ballots can be added to
+     * the election afterwards.
+     * @param election the election, with all of its candidates and ballots
+     */
+    public AuditSimulation(Election election) {
+        this.election = election;
+        this.ballots = election.getBallots();
+        this.weights = ballots.getWeightArray();
+        this.numGroups = ballots.size();
+        this.candidateNames = election.getCandidateNames();
+    }
+
+    /**
+     * Runs the trials.
+     * @param trials the number of resampled tabulations
+     * @param threads the number of threads to run them on
+     * @param seed the seed for the random resampling
+     * @return the distribution of winners and margins
+     */
+    public AuditResult run(int trials, int threads, long seed) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<AuditResult>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int first = t;
+                tasks.add(pool.submit(() -> runTrials(first, threads, trials, seed)));
+            }
+            AuditResult result = new AuditResult(candidateNames);
+            for (ForkJoinTask<AuditResult> task : tasks) {
+                result.addAll(task.join());
+            }
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs every step-th trial, starting with the first, in one scratch area.
+     */
+    private AuditResult runTrials(int first, int step, int trials, long seed) {
+        Scratch scratch = new Scratch(numGroups);
+        AuditResult result = new AuditResult(candidateNames);
+        for (int trial = first; trial < trials; trial += step) {
+            SplittableRandom random = new SplittableRandom(trialSeed(seed, trial));
+            for (int b = 0; b < numGroups; b++) {
+                scratch.weights[b] = poisson(random, weights[b]);
+            }
+            int winner = tabulate(scratch);
+            result.add(winner, scratch.margin);
+        }
+        return result;
+    }
+
+    /**
+     * SplittableRandoms whose seeds differ by a fixed step produce the same
+     * sequence shifted, so the seed of each trial is scrambled from both the
+     * simulation's seed and the trial number.
+     * @return the seed of a trial's random number generator
+     */
+    private static long trialSeed(long seed, int trial) {
+        long base = new SplittableRandom(seed).nextLong();
+        return new SplittableRandom(base + trial).nextLong();
+    }
+
+    /**
+     * Tabulates the ballots with the weights in the scratch area.
+     * @param s the scratch area, whose weights are set
+     * @return the index of the winner, or -1 for a tie.  The winning margin
+     * is left in the scratch area.
+     */
+    int tabulate(Scratch s) {
+        long ballotCount = 0;
+        for (int b = 0; b < numGroups; b++) {
+            ballotCount += s.weights[b];
+        }
+        Election trial = election.withBallots(
+                ballots.withWeights(s.weights, Math.toIntExact(ballotCount)));
+        trial.addRoundListener(s);
+        if (trial.selectWinner().size() != 1) {
+            s.margin = 0;
+            return -1;
+        }
+        return s.winner;
+    }
+
+    /**
+     * Draws from a Poisson distribution.
+     * @param random the random number generator
+     * @param mean the mean of the distribution
+     * @return the number drawn
+     */
+    private static int poisson(SplittableRandom random, int mean) {
+        if (mean < EXACT_POISSON_LIMIT) {
+            double[] cdf = POISSON_CDF[mean];
+            double u = random.nextDouble();
+            int k = 0;
+            while (k < cdf.length - 1 && u >= cdf[k]) {
+                k++;
+            }
+            return k;
+        }
+        // Marsaglia's polar method for a standard normal draw.
+        double u;
+        double v;
+        double r;
+        do {
+            u = 2 * random.nextDouble() - 1;
+            v = 2 * random.nextDouble() - 1;
+            r = u * u + v * v;
+        } while (r >= 1 || r == 0);
+        double normal = u * Math.sqrt(-2 * Math.log(r) / r);
+        return (int) Math.max(0, Math.round(mean + Math.sqrt(mean) * normal));
+    }
+
+    /**
+     * The weights of one trial, reused from trial to trial, and the result
+     * read from the trial's final round.  The tabulation itself is not kept
+     * between trials.
+     */
+    static class Scratch implements RoundListener {
+        // The resampled weight of each ballot group.
+        final int[] weights;
+
+        // The candidate with the most votes in the final round of the latest
+        // tabulation, and their lead over the next candidate.
+        int winner;
+        long margin;
+
+        Scratch(int numGroups) {
+            weights = new int[numGroups];
+        }
+
+        @Override
+        public void roundCompleted(RoundReport report) {
+            if (!report.isFinalRound()) {
+                return;
+            }
+            winner = 0;
+            long runnerUp = 0;
+            for (int c = 1; c < report.getCandidateCount(); c++) {
+                if (report.getVotes(c) > report.getVotes(winner)) {
+                    runnerUp = report.getVotes(winner);
+                    winner = c;
+                }
+                else {
+                    runnerUp = Math.max(runnerUp, report.getVotes(c));
+                }
+            }
+            margin = report.getVotes(winner) - runnerUp;
+        }
+    }
+
+    /**
+     * Runs a simulation of an election file and prints the distribution of
+     * winners and margins.
+     * @param args the election file, then optionally the number of trials
+     * (default 1000), the number of threads (default: one per processor) and
+     * the seed (default 1)
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println(USAGE);
+            return;
+        }
+        int trials;
+        int threads;
+        long seed;
+        try {
+            trials = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+            threads = args.length > 2 ? Integer.parseInt(args[2])
+                                      : Runtime.getRuntime().availableProcessors();
+            seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        } catch (NumberFormatException e) {
+            System.out.println("The trials, threads and seed should be numbers.");
+            System.out.println(USAGE);
+            return;
+        }
+        if (trials < 0 || threads < 1) {
+            System.out.println("The number of trials should not be negative, and "
+                               + "the number of threads should be a positive number.");
+            System.out.println(USAGE);
+            return;
+        }
+        try {
+            Path file = Paths.get(args[0]);
+            Election election = BinaryElectionFormat.isBinaryElectionFile(file)
+                    ? BinaryElectionLoader.load(file) : ElectionLoader.load(file);
+            long start = System.nanoTime();
+            AuditResult result = new AuditSimulation(election).run(trials, threads, seed);
+            System.out.print(result);
+            System.out.printf("%d trials in %.1f s%n", trials,
+                              (System.nanoTime() - start) / 1e9);
+        } catch (ElectionFormatException e) {
+            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            System.out.println("Could not read election file " + args[0]
+                               + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * A BallotCursors holds the state that a single tabulation keeps for the
+ * ballots in a BallotStore: a cursor for each ballot group to its current
+ * top choice.  Finding the top candidate is a single lookup, and moving
+ * past an eliminated candidate is a cursor increment.  A ballot whose
+ * cursor has moved past its last preference is exhausted.
+ *
+ * The store itself is never changed by a tabulation, so several
+ * tabulations of the same ballots can run at once, each with its own
+ * cursors.  The cursors only cover the ballots that were in the store when
+ * they were created.
+ */
+public class BallotCursors {
+    // The preference order of the ballots, and the position at which each
+    // ballot starts, read from the store.
+    private final short[] preferences;
+    private final int[] offsets;
+
+    // For each ballot group, the position in its preference order of its
+    // current top choice.
+    private final short[] cursors;
+
+    /**
+     * Create cursors at the first choice of every ballot in a store.
+     * @param ballots the ballots to tabulate.  No more ballots may be added
+     * while the cursors are in use.
+     */
+    public BallotCursors(BallotStore ballots) {
+        this(ballots, new short[ballots.size()]);
+    }
+
+    /**
+     * Create cursors restored from an ElectionCheckpoint.
+     * @param ballots the ballots being tabulated
+     * @param cursors the position of each ballot group's current top
+     * choice.  The array is used as it is.
+     */
+    BallotCursors(BallotStore ballots, short[] cursors) {
+        this.preferences = ballots.getPreferenceArray();
+        this.offsets = ballots.getOffsetArray();
+        this.cursors = cursors;
+    }
+
+    /**
+     * @param ballot the index of a ballot group
+     * @return the position of the candidate who has the top rank on the
+     * ballot, ignoring candidates that the ballot has moved past, or -1 if
+     * the ballot is exhausted.
+     */
+    public int getTopCandidate(int ballot) {
+        int position = offsets[ballot] + cursors[ballot];
+        if (position == offsets[ballot + 1]) {
+            return -1;
+        }
+        return preferences[position];
+    }
+
+    /**
+     * Moves a ballot past its current top candidate, so that its next
+     * preference becomes its top candidate.  This is used when the top
+     * candidate has been eliminated.
+     * @param ballot the index of a ballot group that is not exhausted
+     */
+    public void advance(int ballot) {
+        cursors[ballot]++;
+    }
+
+    /**
+     * @return the array of cursors, one per ballot group, for
+     * ElectionCheckpoint to save
+     */
+    short[] getCursorArray() {
+        return cursors;
+    }
+}
@@ -0,0 +1,364 @@
+import java.util.Arrays;
+
+/**
+ * A BallotStore holds every ballot cast in an election.  Rather than keeping
+ * one object per ballot, all ballots are packed end to end in a single short
+ * array, and a ballot is identified by its index in the store.
+ *
+ * Each ballot is stored as its preference order: the ids of the candidates
+ * it ranked, from the first choice to the last.  A voter may rank only some
+ * of the candidates, so ballots have different lengths, and ballot i 
+ * occupies positions offsets[i] to offsets[i + 1] - 1.  Tabulation never
+ * changes the store: the position each ballot has reached is kept in a
+ * separate BallotCursors, one per tabulation.
+ *
+ * In large elections with few candidates, most voters share a ranking with
+ * many others.  The store can aggregate identical ballots into a single 
+ * group that is stored once with a weight, so that moving a group moves all
+ * of its ballots at once.  Aggregation starts on, and a hash table finds the
+ * group for each new ballot.  Whenever the number of ballots reaches a power
+ * of two, the store checks how well the ballots are grouping, and switches
+ * aggregation off for the rest of the election if the groups are too small
+ * to be worth the lookups.  Groups formed before then are kept, so ballot
+ * indexes in the store always refer to groups, each with its own weight.
+ */
+public class BallotStore {
+    /** The largest number of candidates whose ids fit in the store. */
+    public static final int MAX_CANDIDATES = Short.MAX_VALUE;
+
+    // Aggregation is only judged once this many ballots have been added.
+    private static final int AGGREGATION_SAMPLE = 4096;
+
+    // Aggregation stays on while groups hold at least this many ballots on
+    // average.
+    private static final int MIN_AVERAGE_GROUP = 8;
+
+    // The number of candidates on the ballot.
+    private final int numCandidates;
+
+    // The preference order of all the ballots.  Only the first
+    // offsets[size] entries are in use.
+    private short[] preferences;
+
+    // The position in preferences at which each ballot starts.  The entry
+    // after the last ballot is where the next ballot will start.
+    private int[] offsets;
+
+    // The number of identical ballots in each group.  Only the first size
+    // entries are in use.
+    private int[] weights;
+
+    // The number of groups in the store, and the number of ballots in all
+    // of the groups.
+    private int size;
+    private int ballotCount;
+
+    // An open addressing hash table of group indexes, keyed by preference
+    // order, with -1 in empty slots.  It is null when aggregation is off.
+    private int[] groupTable;
+
+    // The ballot count at which aggregation is next judged, the next power
+    // of two.  The count may pass over it when a group of ballots is added
+    // at once, and it is judged then.
+    private int nextAggregationCheck = AGGREGATION_SAMPLE;
+
+    /**
+     * Create an empty store that aggregates identical ballots while it is
+     * worthwhile.
+     * @param numCandidates the number of candidates on the ballot
+     */
+    public BallotStore(int numCandidates) {
+        this(numCandidates, true);
+    }
+
+    /**
+     * Create an empty store.
+     * @param numCandidates the number of candidates on the ballot
+     * @param aggregate true to aggregate identical ballots while it is 
+     * worthwhile, false to store every ballot separately
+     */
+    public BallotStore(int numCandidates, boolean aggregate) {
+        if (numCandidates > MAX_CANDIDATES) {
+            throw new IllegalArgumentException("At most " + MAX_CANDIDATES
+                    + " candidates are supported");
+        }
+        this.numCandidates = numCandidates;
+        this.preferences = new short[Math.max(numCandidates, 1) * 16];
+        this.offsets = new int[17];
+        this.weights = new int[16];
+        if (aggregate) {
+            groupTable = new int[64];
+            Arrays.fill(groupTable, -1);
+        }
+    }
+
+    /**
+     * Create a store holding ballots restored from an ElectionCheckpoint.
+     * The arrays are used as they are, and identical ballots added later are
+     * not aggregated.
+     * @param numCandidates the number of candidates on the ballot
+     * @param preferences the preference order of all the ballots
+     * @param offsets the position in preferences at which each ballot 
+     * starts, with one more entry after the last ballot
+     * @param weights the number of identical ballots in each group
+     * @param size the number of groups
+     * @param ballotCount the number of ballots in all the groups
+     */
+    BallotStore(int numCandidates, short[] preferences, int[] offsets,
+                int[] weights, int size, int ballotCount) {
+        this.numCandidates = numCandidates;
+        this.preferences = preferences;
+        this.offsets = offsets;
+        this.weights = weights;
+        this.size = size;
+        this.ballotCount = ballotCount;
+    }
+
+    /**
+     * Adds a ballot to the store.  The ranks must already have been checked
+     * to be a permutation of the numbers 1 to k for the candidates that were
+     * ranked, with 0 for the candidates that were not.
+     * @param ballotRanks the rank of each candidate on the ballot.  Only the
+     * first n entries are used, and the array is not retained.
+     * @return the index of the ballot's group
+     */
+    public int add(int[] ballotRanks) {
+        int numRanked = 0;
+        for (int c = 0; c < numCandidates; c++) {
+            if (ballotRanks[c] != 0) {
+                numRanked++;
+            }
+        }
+
+        int offset = reserve(numRanked);
+        for (int c = 0; c < numCandidates; c++) {
+            if (ballotRanks[c] != 0) {
+                preferences[offset + ballotRanks[c] - 1] = (short) c;
+            }
+        }
+        return commit(offset, numRanked, 1);
+    }
+
+    /**
+     * Adds a ballot that is already in preference order.  The preferences 
+     * must already have been checked to be distinct candidate ids.
+     * @param ballotPreferences the ids of the ranked candidates, from the
+     * first choice to the last.  The array is not retained.
+     * @param numRanked the number of candidates ranked on the ballot
+     * @return the index of the ballot's group
+     */
+    public int addPreferences(int[] ballotPreferences, int numRanked) {
+        return addPreferences(ballotPreferences, numRanked, 1);
+    }
+
+    /**
+     * Adds a number of identical ballots that are already in preference 
+     * order, such as a group copied from another store.
+     * @param ballotPreferences the ids of the ranked candidates, from the
+     * first choice to the last.  The array is not retained.
+     * @param numRanked the number of candidates ranked on the ballots
+     * @param weight the number of ballots
+     * @return the index of the ballots' group
+     */
+    public int addPreferences(int[] ballotPreferences, int numRanked, int weight) {
+        int offset = reserve(numRanked);
+        for (int r = 0; r < numRanked; r++) {
+            preferences[offset + r] = (short) ballotPreferences[r];
+        }
+        return commit(offset, numRanked, weight);
+    }
+
+    /**
+     * Adds every ballot group in another store, with its weight.
+     * @param other the store to copy.  It is not changed.
+     */
+    public void addAll(BallotStore other) {
+        int[] groupPreferences = new int[numCandidates];
+        for (int b = 0; b < other.size(); b++) {
+            int numRanked = other.getPreferences(b, groupPreferences);
+            addPreferences(groupPreferences, numRanked, other.getWeight(b));
+        }
+    }
+
+    /**
+     * Makes room for the next ballot.  The ballot does not become part of 
+     * the store until it is committed.
+     * @param numRanked the number of candidates ranked on the ballot
+     * @return the position in preferences at which the ballot starts
+     */
+    private int reserve(int numRanked) {
+        int offset = offsets[size];
+        if (offset + numRanked > preferences.length) {
+            long grown = Math.max((long) preferences.length * 2, offset + numRanked);
+            if (grown > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Ballot store is full");
+            }
+            preferences = Arrays.copyOf(preferences, (int) grown);
+        }
+        if (size == weights.length) {
+            weights = Arrays.copyOf(weights, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2 + 1);
+        }
+        offsets[size + 1] = offset + numRanked;
+        return offset;
+    }
+
+    /**
+     * Adds the reserved ballot to the store.  If aggregation is on and an
+     * identical ballot is already stored, the reserved space is given back
+     * and that ballot's group gets the ballots instead.
+     * @param offset the position in preferences at which the ballot starts
+     * @param numRanked the number of candidates ranked on the ballot
+     * @param weight the number of identical ballots being added
+     * @return the index of the ballot's group
+     */
+    private int commit(int offset, int numRanked, int weight) {
+        ballotCount += weight;
+        if (groupTable != null) {
+            int mask = groupTable.length - 1;
+            int slot = hash(offset, numRanked) & mask;
+            while (groupTable[slot] >= 0) {
+                int group = groupTable[slot];
+                if (isSameBallot(group, offset, numRanked)) {
+                    weights[group] += weight;
+                    checkAggregation();
+                    return group;
+                }
+                slot = (slot + 1) & mask;
+            }
+            groupTable[slot] = size;
+        }
+        weights[size] = weight;
+        size++;
+        if (groupTable != null && size * 2 > groupTable.length) {
+            rehash();
+        }
+        checkAggregation();
+        return size - 1;
+    }
+
+    /**
+     * Switches aggregation off if, once enough ballots have been seen, the
+     * groups are too small on average.
+     */
+    private void checkAggregation() {
+        if (groupTable != null && ballotCount >= nextAggregationCheck) {
+            nextAggregationCheck = (int) Math.min(Integer.MAX_VALUE,
+                    (long) Integer.highestOneBit(ballotCount) * 2);
+            if ((long) size * MIN_AVERAGE_GROUP > ballotCount) {
+                groupTable = null;
+            }
+        }
+    }
+
+    /**
+     * Doubles the size of the hash table.
+     */
+    private void rehash() {
+        int[] table = new int[groupTable.length * 2];
+        Arrays.fill(table, -1);
+        int mask = table.length - 1;
+        for (int group = 0; group < size; group++) {
+            int slot = hash(offsets[group], offsets[group + 1] - offsets[group]) & mask;
+            while (table[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = group;
+        }
+        groupTable = table;
+    }
+
+    private int hash(int offset, int numRanked) {
+        int hash = numRanked;
+        for (int r = 0; r < numRanked; r++) {
+            hash = hash * 31 + preferences[offset + r];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean isSameBallot(int group, int offset, int numRanked) {
+        int start = offsets[group];
+        if (offsets[group + 1] - start != numRanked) {
+            return false;
+        }
+        for (int r = 0; r < numRanked; r++) {
+            if (preferences[start + r] != preferences[offset + r]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of ballot groups in the store.  Without 
+     * aggregation this is the number of ballots.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of ballots in the store, counting every ballot in
+     * every group
+     */
+    public int getBallotCount() {
+        return ballotCount;
+    }
+
+    /**
+     * @param ballot the index of a ballot group
+     * @return the number of identical ballots in the group
+     */
+    public int getWeight(int ballot) {
+        return weights[ballot];
+    }
+
+    /**
+     * Copies the preference order of a ballot group, from its first choice
+     * to its last.
+     * @param ballot the index of a ballot group
+     * @param dest receives the candidate ids.  It must have room for every
+     * candidate.
+     * @return the number of candidates ranked on the ballot
+     */
+    public int getPreferences(int ballot, int[] dest) {
+        int start = offsets[ballot];
+        int numRanked = offsets[ballot + 1] - start;
+        for (int r = 0; r < numRanked; r++) {
+            dest[r] = preferences[start + r];
+        }
+        return numRanked;
+    }
+
+    /**
+     * Makes a store of the same ballot groups with other weights, such as 
+     * the ballots as they are now, or a resample of them.  The ballots are
+     * shared rather than copied.  Adding ballots to this store only writes 
+     * past the end of the groups that are shared, so the new store does not
+     * change when ballots are added to this one.
+     * @param groupWeights the number of ballots in each group.  The array is
+     * used as it is, and must have an entry for every group.
+     * @param groupBallotCount the sum of the weights
+     * @return a store that no more ballots should be added to
+     */
+    BallotStore withWeights(int[] groupWeights, int groupBallotCount) {
+        return new BallotStore(numCandidates, preferences, offsets, groupWeights,
+                               size, groupBallotCount);
+    }
+
+    // The arrays behind the store, for ElectionCheckpoint to save and for
+    // tabulations to read.  Only the entries described by the field comments
+    // are in use.
+
+    short[] getPreferenceArray() {
+        return preferences;
+    }
+
+    int[] getOffsetArray() {
+        return offsets;
+    }
+
+    int[] getWeightArray() {
+        return weights;
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.Arrays;
+
+/**
+ * A BallotValidator checks ballots in a single pass, without allocating.  A
+ * ballot has one entry per candidate.  If the voter ranked k candidates, 
+ * their entries must be a permutation of the numbers 1 to k, and the entries
+ * of the candidates they did not rank must be 0.  It remembers which ranks
+ * it has seen by stamping them with the number of the ballot being checked,
+ * so the marks never need to be cleared between ballots.
+ *
+ * A validator is not thread safe.  Each thread that adds ballots needs its
+ * own.
+ */
+public class BallotValidator {
+    // The number of candidates, which is also the required ballot length.
+    private final int numCandidates;
+
+    // seen[r - 1] == stamp if rank r has been seen on the current ballot.
+    private final int[] seen;
+    private int stamp;
+
+    /**
+     * Create a validator.
+     * @param numCandidates the number of candidates in the election
+     */
+    public BallotValidator(int numCandidates) {
+        this.numCandidates = numCandidates;
+        this.seen = new int[numCandidates];
+    }
+
+    /**
+     * Checks a ballot.
+     * @param ranks the ranks on the ballot
+     * @param numRanks the number of ranks on the ballot
+     * @throws InvalidBallotException if the ballot is not valid
+     */
+    public void check(int[] ranks, int numRanks) {
+        if (numRanks != numCandidates) {
+            throw new InvalidBallotException(
+                    InvalidBallotException.Reason.WRONG_LENGTH, numRanks);
+        }
+        if (++stamp == 0) {
+            Arrays.fill(seen, 0);
+            stamp = 1;
+        }
+        int numRanked = 0;
+        for (int i = 0; i < numRanks; i++) {
+            int rank = ranks[i];
+            if (rank == 0) {
+                continue;
+            }
+            if (rank < 0 || rank > numCandidates) {
+                throw new InvalidBallotException(
+                        InvalidBallotException.Reason.RANK_OUT_OF_RANGE, rank);
+            }
+            if (seen[rank - 1] == stamp) {
+                throw new InvalidBallotException(
+                        InvalidBallotException.Reason.DUPLICATE_RANK, rank);
+            }
+            seen[rank - 1] = stamp;
+            numRanked++;
+        }
+
+        // The ranks are distinct, so they are 1 to k exactly when none is
+        // greater than k.  Otherwise report the first rank that was skipped.
+        for (int i = 0; i < numRanks; i++) {
+            if (ranks[i] > numRanked) {
+                int skipped = 1;
+                while (seen[skipped - 1] == stamp) {
+                    skipped++;
+                }
+                throw new InvalidBallotException(
+                        InvalidBallotException.Reason.SKIPPED_RANK, skipped);
+            }
+        }
+    }
+
+    /**
+     * Checks a ballot that is given in preference order.
+     * @param preferences the ids of the ranked candidates, from the first
+     * choice to the last
+     * @param numRanked the number of candidates ranked on the ballot
+     * @throws InvalidBallotException if the ballot ranks more candidates
+     * than there are, ranks a candidate that does not exist, or ranks a 
+     * candidate twice
+     */
+    public void checkPreferences(int[] preferences, int numRanked) {
+        if (numRanked > numCandidates) {
+            throw new InvalidBallotException(
+                    InvalidBallotException.Reason.WRONG_LENGTH, numRanked);
+        }
+        if (++stamp == 0) {
+            Arrays.fill(seen, 0);
+            stamp = 1;
+        }
+        for (int r = 0; r < numRanked; r++) {
+            int candidate = preferences[r];
+            if (candidate < 0 || candidate >= numCandidates) {
+                throw new InvalidBallotException(
+                        InvalidBallotException.Reason.CANDIDATE_OUT_OF_RANGE,
+                        candidate);
+            }
+            if (seen[candidate] == stamp) {
+                throw new InvalidBallotException(
+                        InvalidBallotException.Reason.DUPLICATE_CANDIDATE,
+                        candidate);
+            }
+            seen[candidate] = stamp;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Describes the binary election file format, a compact alternative to the 
+ * text format described in RankedChoiceVoting.  All numbers are big-endian.
+ *
+ * The file begins with a 20 byte header:
+ *
+ *     offset  size  contents
+ *          0     4  the magic bytes "RCVB"
+ *          4     1  the format version, currently 1
+ *          5     1  the field width in bits: 4, 8 or 16
+ *          6     2  reserved, 0
+ *          8     4  the number of candidates, n
+ *         12     8  the number of ballots
+ *
+ * The header is followed by the n candidate names, each stored as a 4 byte
+ * length and that many bytes of UTF-8.
+ *
+ * The ballots come last.  Each ballot is stored in preference order as 
+ * k + 1 fields: k, the number of candidates ranked, followed by the ids of
+ * the ranked candidates from first choice to last.  The field width is the
+ * smallest of 4, 8 and 16 bits that can hold n, so an election with up to 15
+ * candidates packs two fields into each byte.  Fields are packed from the
+ * most significant bits down, and each ballot is padded to a whole number of
+ * bytes.
+ */
+public final class BinaryElectionFormat {
+    /** The first four bytes of every binary election file. */
+    static final byte[] MAGIC = {'R', 'C', 'V', 'B'};
+
+    /** The current format version. */
+    static final int VERSION = 1;
+
+    /** The size of the fixed part of the header. */
+    static final int HEADER_SIZE = 20;
+
+    /** The offset in the header of the ballot count. */
+    static final int BALLOT_COUNT_OFFSET = 12;
+
+    private BinaryElectionFormat() {
+    }
+
+    /**
+     * @param numCandidates the number of candidates in the election
+     * @return the number of bits used for each field of a ballot
+     */
+    static int fieldWidth(int numCandidates) {
+        if (numCandidates < 16) {
+            return 4;
+        }
+        if (numCandidates < 256) {
+            return 8;
+        }
+        return 16;
+    }
+
+    /**
+     * @param numCandidates the number of candidates in the election
+     * @return the most bytes a single ballot can take
+     */
+    static int maxBallotBytes(int numCandidates) {
+        return ((numCandidates + 1) * fieldWidth(numCandidates) + 7) / 8;
+    }
+
+    /**
+     * Checks whether a file is a binary election file by looking at its 
+     * first bytes.
+     * @param file the file to check
+     * @return true if the file starts with the binary format's magic bytes
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isBinaryElectionFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer start = ByteBuffer.allocate(MAGIC.length);
+            while (start.hasRemaining() && channel.read(start) >= 0) {
+                // keep reading until the magic bytes are in or the file ends
+            }
+            if (start.hasRemaining()) {
+                return false;
+            }
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (start.get(i) != MAGIC[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A BinaryElectionLoader reads an election file in the format described in
+ * BinaryElectionFormat and builds the corresponding Election.
+ *
+ * The file is read sequentially in large blocks into a direct buffer, and 
+ * each ballot is unpacked from the buffer straight into preference order, so
+ * loading needs no text parsing and no conversion from ranks.
+ */
+public class BinaryElectionLoader {
+    // The size of the read buffer.
+    private static final int BUFFER_SIZE = 8 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    // True once the whole file has been read into the buffer.
+    private boolean endOfFile;
+
+    /**
+     * Reads the election data in a binary file.
+     * @param file the election file
+     * @return the election described by the file, with all ballots added
+     * @throws IOException if the file cannot be read
+     * @throws ElectionFormatException if the file is not a valid binary
+     * election file
+     */
+    public static Election load(Path file)
+            throws IOException, ElectionFormatException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new BinaryElectionLoader(channel).read();
+        }
+    }
+
+    private BinaryElectionLoader(FileChannel channel) {
+        this.channel = channel;
+        buffer.limit(0);
+    }
+
+    private Election read() throws IOException, ElectionFormatException {
+        // Read the header
+        require(BinaryElectionFormat.HEADER_SIZE);
+        for (byte magic : BinaryElectionFormat.MAGIC) {
+            if (buffer.get() != magic) {
+                throw new ElectionFormatException("This is not a binary election file.");
+            }
+        }
+        int version = buffer.get();
+        if (version != BinaryElectionFormat.VERSION) {
+            throw new ElectionFormatException("Unsupported binary election file "
+                    + "version " + version + ".");
+        }
+        int fieldWidth = buffer.get();
+        buffer.getShort();
+        int numCandidates = buffer.getInt();
+        long numBallots = buffer.getLong();
+        if (numCandidates < 0 || numCandidates > BallotStore.MAX_CANDIDATES
+                || fieldWidth != BinaryElectionFormat.fieldWidth(numCandidates)
+                || numBallots < 0) {
+            throw new ElectionFormatException("The binary election file header "
+                    + "is corrupt.");
+        }
+        Election election = new Election(numCandidates);
+
+        // Read in the candidates
+        for (int i = 0; i < numCandidates; i++) {
+            require(4);
+            int length = buffer.getInt();
+            if (length < 0) {
+                throw new ElectionFormatException("The name of candidate " 
+                        + (i + 1) + " is corrupt.");
+            }
+            byte[] name = new byte[length];
+            int copied = 0;
+            while (copied < length) {
+                require(1);
+                int chunk = Math.min(length - copied, buffer.remaining());
+                buffer.get(name, copied, chunk);
+                copied += chunk;
+            }
+            election.addCandidate(new String(name, StandardCharsets.UTF_8));
+        }
+
+        // Read in the ballots
+        int maxBallotBytes = BinaryElectionFormat.maxBallotBytes(numCandidates);
+        int[] preferences = new int[Math.max(numCandidates, 1) + 1];
+        for (long b = 0; b < numBallots; b++) {
+            if (buffer.remaining() < maxBallotBytes) {
+                fill();
+            }
+            int numRanked;
+            try {
+                numRanked = readBallot(fieldWidth, preferences, numCandidates);
+                election.addPreferences(preferences, numRanked);
+            } catch (InvalidBallotException e) {
+                throw new ElectionFormatException("Invalid ballot " + (b + 1)
+                        + " (" + e.getReason().getDescription() + ": " 
+                        + e.getValue() + ").");
+            } catch (BufferUnderflowException e) {
+                throw new ElectionFormatException("The file ended after " + b
+                        + " of " + numBallots + " ballots.");
+            }
+        }
+        return election;
+    }
+
+    /**
+     * Unpacks the next ballot from the buffer.
+     * @param fieldWidth the number of bits in each field
+     * @param preferences receives the ranked candidate ids
+     * @param numCandidates the number of candidates
+     * @return the number of candidates ranked on the ballot
+     * @throws InvalidBallotException if the ballot ranks more candidates than
+     * there are
+     */
+    private int readBallot(int fieldWidth, int[] preferences, int numCandidates) {
+        int numRanked;
+        if (fieldWidth == 4) {
+            int packed = buffer.get() & 0xFF;
+            numRanked = packed >>> 4;
+            checkLength(numRanked, numCandidates);
+            for (int r = 0; r < numRanked; r++) {
+                if ((r & 1) == 0) {
+                    preferences[r] = packed & 0xF;
+                }
+                else {
+                    packed = buffer.get() & 0xFF;
+                    preferences[r] = packed >>> 4;
+                }
+            }
+        }
+        else if (fieldWidth == 8) {
+            numRanked = buffer.get() & 0xFF;
+            checkLength(numRanked, numCandidates);
+            for (int r = 0; r < numRanked; r++) {
+                preferences[r] = buffer.get() & 0xFF;
+            }
+        }
+        else {
+            numRanked = buffer.getShort() & 0xFFFF;
+            checkLength(numRanked, numCandidates);
+            for (int r = 0; r < numRanked; r++) {
+                preferences[r] = buffer.getShort() & 0xFFFF;
+            }
+        }
+        return numRanked;
+    }
+
+    private static void checkLength(int numRanked, int numCandidates) {
+        if (numRanked > numCandidates) {
+            throw new InvalidBallotException(
+                    InvalidBallotException.Reason.WRONG_LENGTH, numRanked);
+        }
+    }
+
+    /**
+     * Makes sure at least the given number of bytes are in the buffer.
+     */
+    private void require(int bytes) throws IOException, ElectionFormatException {
+        if (buffer.remaining() < bytes) {
+            fill();
+            if (buffer.remaining() < bytes) {
+                throw new ElectionFormatException("The binary election file "
+                        + "ended unexpectedly.");
+            }
+        }
+    }
+
+    /**
+     * Moves the unread bytes to the front of the buffer and reads more of
+     * the file after them.
+     */
+    private void fill() throws IOException {
+        if (endOfFile) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                endOfFile = true;
+                break;
+            }
+        }
+        buffer.flip();
+    }
+}
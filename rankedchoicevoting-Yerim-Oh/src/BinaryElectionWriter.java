@@ -0,0 +1,151 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A BinaryElectionWriter writes an election in the format described in
+ * BinaryElectionFormat.  It is an ElectionSink, so a text election file can 
+ * be converted by reading it with ElectionLoader straight into a writer,
+ * without holding the ballots in memory.  Each ballot is validated as it is
+ * written, in the same way as Election.addBallot.
+ *
+ * The ballot count in the header is filled in when the writer is closed.
+ */
+public class BinaryElectionWriter implements ElectionSink, AutoCloseable {
+    // The size of the output buffer.
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private int numCandidates;
+    private int fieldWidth;
+    private BallotValidator validator;
+
+    // Holds the ballot being written in preference order.
+    private int[] preferences;
+
+    private long numBallots;
+
+    /**
+     * Create a writer.  Any existing file is replaced.
+     * @param file the file to write
+     * @throws IOException if the file cannot be created
+     */
+    public BinaryElectionWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @Override
+    public void begin(int numCandidates) throws IOException {
+        this.numCandidates = numCandidates;
+        this.fieldWidth = BinaryElectionFormat.fieldWidth(numCandidates);
+        this.validator = new BallotValidator(numCandidates);
+        this.preferences = new int[numCandidates];
+
+        buffer.put(BinaryElectionFormat.MAGIC);
+        buffer.put((byte) BinaryElectionFormat.VERSION);
+        buffer.put((byte) fieldWidth);
+        buffer.putShort((short) 0);
+        buffer.putInt(numCandidates);
+        buffer.putLong(0);
+    }
+
+    @Override
+    public void addCandidate(String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ensureRoom(4 + bytes.length);
+        buffer.putInt(bytes.length);
+        if (bytes.length > buffer.remaining()) {
+            flush();
+            channel.write(ByteBuffer.wrap(bytes));
+        }
+        else {
+            buffer.put(bytes);
+        }
+    }
+
+    @Override
+    public void addBallot(int[] ranks, int numRanks) throws IOException {
+        validator.check(ranks, numRanks);
+        int numRanked = 0;
+        for (int c = 0; c < numCandidates; c++) {
+            if (ranks[c] != 0) {
+                preferences[ranks[c] - 1] = c;
+                numRanked++;
+            }
+        }
+
+        ensureRoom(BinaryElectionFormat.maxBallotBytes(numCandidates));
+        if (fieldWidth == 4) {
+            // Fields alternate between the high and low nibble of a byte.
+            int pending = numRanked << 4;
+            for (int r = 0; r < numRanked; r++) {
+                if ((r & 1) == 0) {
+                    buffer.put((byte) (pending | preferences[r]));
+                }
+                else {
+                    pending = preferences[r] << 4;
+                }
+            }
+            if ((numRanked & 1) == 0) {
+                buffer.put((byte) pending);
+            }
+        }
+        else if (fieldWidth == 8) {
+            buffer.put((byte) numRanked);
+            for (int r = 0; r < numRanked; r++) {
+                buffer.put((byte) preferences[r]);
+            }
+        }
+        else {
+            buffer.putShort((short) numRanked);
+            for (int r = 0; r < numRanked; r++) {
+                buffer.putShort((short) preferences[r]);
+            }
+        }
+        numBallots++;
+    }
+
+    /**
+     * @return the number of ballots written so far
+     */
+    public long getBallotCount() {
+        return numBallots;
+    }
+
+    /**
+     * Writes any buffered data, fills in the ballot count and closes the
+     * file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer count = ByteBuffer.allocate(8);
+            count.putLong(numBallots);
+            count.flip();
+            channel.write(count, BinaryElectionFormat.BALLOT_COUNT_OFFSET);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
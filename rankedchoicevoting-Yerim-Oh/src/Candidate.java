@@ -1,10 +1,8 @@
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * A Candidate represents a person who is running for office.  A Candidate has 
  * a name, and can be eliminated from the election following the rules of 
- * ranked choice voting.
+ * ranked choice voting.  In a multi-winner count, a Candidate can also be 
+ * elected to a seat before the count is over.
  */
 public class Candidate {
     // The candidate's name
@@ -13,9 +11,16 @@ public class Candidate {
     // Whether the candidate is still in the election
     private boolean eliminated = false;
 
-    // The ballots on which this candidate has the highest rank.
-    // If a candidate is eliminated, this list should be empty.
-    private List<Ballot> votes = new ArrayList<>();
+    // Whether the candidate has been elected to a seat
+    private boolean elected = false;
+
+    // The indexes in the BallotStore of the ballot groups on which this 
+    // candidate has the highest rank.  If a candidate is eliminated, this 
+    // list should be empty.
+    private IntList votes = new IntList();
+
+    // The number of ballots in those groups.
+    private int voteCount;
 
     /**
      * Create a new candidate
@@ -33,31 +38,57 @@ public class Candidate {
     }
 
     /**
-     * Add a vote for this candidate.
-     * @param newBallot a ballot that has this candidate as its top choice
+     * Add votes for this candidate.
+     * @param newBallot the index of a ballot group that has this candidate as
+     * its top choice
+     * @param weight the number of ballots in the group
      */
-    public void addBallot(Ballot newBallot) {
+    public void addBallot(int newBallot, int weight) {
         votes.add(newBallot);
+        voteCount += weight;
     }
 
     /**
      * @return the number of ballots for which this candidate is the top choice
      */
     public int getVotes() {
-        return votes.size();
+        return voteCount;
     }
     
     /**
      * Eliminate this candidate from the election.
-     * @return the ballots for which this candidate was the top choice.
+     * @return the indexes of the ballot groups for which this candidate was 
+     * the top choice.
      */
-    public List<Ballot> eliminate() {
-        List<Ballot> returnValue = votes;
-        votes = new ArrayList<>();
+    public IntList eliminate() {
+        IntList returnValue = votes;
+        votes = new IntList();
+        voteCount = 0;
         eliminated = true;
         return returnValue;
     }
     
+    /**
+     * Elect this candidate to a seat.  An elected candidate receives no more
+     * ballots.
+     * @return the indexes of the ballot groups for which this candidate was
+     * the top choice, whose surplus may be transferred.
+     */
+    public IntList elect() {
+        IntList returnValue = votes;
+        votes = new IntList();
+        voteCount = 0;
+        elected = true;
+        return returnValue;
+    }
+
+    /**
+     * @return true if this candidate has been elected to a seat.
+     */
+    public boolean isElected() {
+        return elected;
+    }
+    
     /**
      * @return true if this candidate has been eliminated from the election.
      */
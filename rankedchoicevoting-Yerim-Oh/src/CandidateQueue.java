@@ -0,0 +1,174 @@
+/**
+ * A CandidateQueue is an indexed min-heap of the candidates still in an
+ * election, ordered by their current number of votes.  Candidates with the
+ * same number of votes are ordered by their position on the ballot, so the
+ * front of the queue is always the candidate that the ranked choice voting
+ * algorithm eliminates next.
+ *
+ * The vote counts are read from an array owned by the caller.  When the
+ * caller increases a count it must tell the queue, which restores the heap
+ * order in O(log n) rather than rebuilding it.
+ */
+public class CandidateQueue {
+    // The vote count of each candidate, indexed by candidate id.
+    private final int[] votes;
+
+    // The heap of candidate ids.  Only the first size entries are in use.
+    private final int[] heap;
+
+    // The position of each candidate in the heap, or -1 once it is removed.
+    private final int[] positions;
+
+    private int size;
+
+    /**
+     * Create a queue holding every candidate.
+     * @param votes the current vote count of each candidate.  The array is
+     * retained and must be kept up to date by the caller.
+     */
+    public CandidateQueue(int[] votes) {
+        this(votes, null);
+    }
+
+    /**
+     * Create a queue holding the candidates who have not been eliminated.
+     * @param votes the current vote count of each candidate.  The array is
+     * retained and must be kept up to date by the caller.
+     * @param candidates the candidates, or null to hold every candidate
+     */
+    public CandidateQueue(int[] votes, Candidate[] candidates) {
+        this.votes = votes;
+        this.heap = new int[votes.length];
+        this.positions = new int[votes.length];
+        for (int i = 0; i < votes.length; i++) {
+            if (candidates != null && candidates[i].isEliminated()) {
+                positions[i] = -1;
+            }
+            else {
+                heap[size] = i;
+                positions[i] = size;
+                size++;
+            }
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * @return the number of candidates in the queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index a position in the queue, from 0 to size() - 1
+     * @return the id of the candidate at that position.  Positions follow
+     * the heap layout, so only position 0 is in any particular order.
+     */
+    public int get(int index) {
+        return heap[index];
+    }
+
+    /**
+     * @param candidateId the id of a candidate
+     * @return true if the candidate has not been removed from the queue
+     */
+    public boolean contains(int candidateId) {
+        return positions[candidateId] >= 0;
+    }
+
+    /**
+     * @return the id of the candidate with the fewest votes, without 
+     * removing it.
+     */
+    public int peek() {
+        return heap[0];
+    }
+
+    /**
+     * Removes the candidate with the fewest votes.
+     * @return the id of the removed candidate
+     */
+    public int poll() {
+        int lowest = heap[0];
+        size--;
+        positions[lowest] = -1;
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return lowest;
+    }
+
+    /**
+     * Removes a candidate, wherever it is in the queue.
+     * @param candidateId the id of a candidate in the queue
+     */
+    public void remove(int candidateId) {
+        int i = positions[candidateId];
+        size--;
+        positions[candidateId] = -1;
+        if (i < size) {
+            // Fill the gap with the last candidate, which may belong either
+            // above or below it.
+            int moved = heap[size];
+            heap[i] = moved;
+            positions[moved] = i;
+            siftUp(i);
+            if (positions[moved] == i) {
+                siftDown(i);
+            }
+        }
+    }
+
+    /**
+     * Restores the heap order after a candidate's vote count has gone up.
+     * @param candidateId the id of the candidate whose count increased
+     */
+    public void increased(int candidateId) {
+        siftDown(positions[candidateId]);
+    }
+
+    private void siftUp(int i) {
+        int candidate = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!isLess(candidate, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            positions[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = candidate;
+        positions[candidate] = i;
+    }
+
+    private void siftDown(int i) {
+        int candidate = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && isLess(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!isLess(heap[child], candidate)) {
+                break;
+            }
+            heap[i] = heap[child];
+            positions[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = candidate;
+        positions[candidate] = i;
+    }
+
+    private boolean isLess(int a, int b) {
+        return votes[a] < votes[b] || (votes[a] == votes[b] && a < b);
+    }
+}
@@ -1,6 +1,11 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * An Election consists of the candidates running for office, the ballots that 
@@ -9,11 +14,14 @@ import java.util.List;
  * 
  * Ranked choice voting uses this process:
  * 
- * 1. Rather than vote for a single candidate, a voter ranks all the 
- * candidates.  For example, if 3 candidates are running on the ballot, a voter
- * identifies their first choice, second choice, and third choice.
+ * 1. Rather than vote for a single candidate, a voter ranks the candidates.  
+ * For example, if 3 candidates are running on the ballot, a voter identifies
+ * their first choice, second choice, and third choice.  A voter may stop 
+ * after ranking only their top few candidates.
  * 2. The first-choice votes are tallied.  If any candidate receives > 50% of 
- * the votes, that candidate wins.
+ * the votes, that candidate wins.  Only continuing ballots count towards the
+ * total: a ballot whose ranked candidates have all been eliminated is 
+ * exhausted and no longer counts for anyone.
  * 3. If no candidate wins &gt; 50% of the votes, the candidate(s) with the 
  * lowest number of votes is(are) eliminated.  For each ballot in which an
  * eliminated candidate is the first choice, the 2nd ranked candidate is now
@@ -23,82 +31,386 @@ import java.util.List;
  * there would be a separate election involving just the tied candidates.
  */
 public class Election {
-    // All candidates that were in the election initially.  If a candidate is 
-    // eliminated, they will still stay in this array.
-    private final Candidate[] candidates;
+    // The names of all candidates in the election, in ballot order.  Each
+    // tabulation makes its own Candidate objects, so that tabulations do
+    // not share any state that changes.
+    private final String[] names;
     
-    // The next slot in the candidates array to fill.
+    // The next slot in the names array to fill.
     private int nextCandidate;
     
+    // The ranks of every ballot cast in the election, gathered from the
+    // buffers when tabulation starts.  Null until then.  Tabulation only
+    // reads the store, and keeps its positions in its own BallotCursors.
+    private BallotStore ballots;
+    
+    // Set when the ballots are gathered, after which no more can be added.
+    private volatile boolean gathered;
+    
+    // Each thread adding ballots checks and stores them in its own buffer,
+    // so threads never wait for each other.  Set to null once the ballots
+    // are gathered, so that the entries the buffers have in the threads'
+    // maps can be dropped.
+    private volatile ThreadLocal<BallotBuffer> buffers;
+    
+    // The buffer of every thread that has added ballots.
+    private final Queue<BallotBuffer> allBuffers = new ConcurrentLinkedQueue<>();
+    
+    // The number of threads used to tabulate the ballots.
+    private int parallelism = 1;
+    
+    // Whether candidates who cannot win are eliminated together.
+    private boolean batchElimination;
+    
+    // Chooses who to eliminate when candidates tie for the fewest votes, or
+    // null to eliminate the one listed first.
+    private TieBreakStrategy tieBreak;
+    
+    // Told about each round of tabulation.
+    private final List<RoundListener> listeners = new ArrayList<>();
+    
+    // Where the state is saved after every round, or null.
+    private ElectionCheckpoint checkpoint;
+    
+    // The first round to tabulate, which is later than 1 when the election
+    // is resumed from a checkpoint, and the state at the end of the round
+    // before it: each candidate's votes, whether they had been eliminated,
+    // the ballots' cursors and every earlier round's tallies.  Each 
+    // selectWinner starts from a copy.  The state is null unless resumed.
+    private int firstRound = 1;
+    private int[] resumedVotes;
+    private boolean[] resumedEliminated;
+    private short[] resumedCursors;
+    private int[][] resumedTallies;
+    
     /**
      * Create a new Election object.  Initially, there are no candidates or 
      * votes.
      * @param numCandidates the number of candidates in the election.
      */
     public Election (int numCandidates) {
-        this.candidates = new Candidate[numCandidates];
+        this.names = new String[numCandidates];
+        this.buffers = ThreadLocal.withInitial(() -> {
+            BallotBuffer buffer = new BallotBuffer(numCandidates);
+            allBuffers.add(buffer);
+            return buffer;
+        });
+    }
+    
+    /**
+     * Create an election of ballots that have already been checked and
+     * gathered, such as a LiveElection's.  No more ballots can be added.
+     * @param names the candidates' names, in ballot order.  The array is
+     * copied.
+     * @param ballots the ballots, which must not change afterwards
+     */
+    Election (String[] names, BallotStore ballots) {
+        this.names = names.clone();
+        this.nextCandidate = names.length;
+        this.ballots = ballots;
+        this.gathered = true;
+    }
+    
+    /**
+     * Creates an election of the same candidates with other ballots, such
+     * as a resample of this election's, that is counted with the same batch
+     * elimination and tie break settings.  Round listeners, the parallelism
+     * and any checkpoint are not copied.
+     * @param other the ballots, which must not change afterwards
+     * @return the new election, to which no more ballots can be added
+     */
+    Election withBallots (BallotStore other) {
+        Election copy = new Election(names, other);
+        copy.batchElimination = batchElimination;
+        copy.tieBreak = tieBreak;
+        return copy;
+    }
+    
+    /**
+     * The ballots added by one thread, and the validator that checks them.
+     */
+    private static class BallotBuffer {
+        // Both null once the ballots have been gathered.
+        BallotValidator validator;
+        BallotStore ballots;
+        
+        BallotBuffer(int numCandidates) {
+            this.validator = new BallotValidator(numCandidates);
+            this.ballots = new BallotStore(numCandidates);
+        }
+        
+        /**
+         * Lets go of the buffer's ballots once they have been gathered, since
+         * the buffer stays in its thread's map until the thread ends.
+         */
+        void release() {
+            validator = null;
+            ballots = null;
+        }
+    }
+    
+    /**
+     * The state of one tabulation by selectWinner.  Nothing in it is shared
+     * with another tabulation.
+     */
+    private static class Tabulation {
+        // The candidates, which record who has been eliminated and which
+        // ballots each holds.
+        final Candidate[] candidates;
+        
+        // The position each ballot has reached.
+        final BallotCursors cursors;
+        
+        // The first round, each candidate's votes expected at the start of
+        // it or null, the tallies at the start of every round before it or
+        // null, and where to save the state after every round or null.
+        final int firstRound;
+        final int[] expectedVotes;
+        final int[][] earlierTallies;
+        final ElectionCheckpoint checkpoint;
+        
+        Tabulation(Candidate[] candidates, BallotCursors cursors, int firstRound,
+                   int[] expectedVotes, int[][] earlierTallies,
+                   ElectionCheckpoint checkpoint) {
+            this.candidates = candidates;
+            this.cursors = cursors;
+            this.firstRound = firstRound;
+            this.expectedVotes = expectedVotes;
+            this.earlierTallies = earlierTallies;
+            this.checkpoint = checkpoint;
+        }
     }
     
     /**
-     * Adds a candidate to the election
+     * Adds a candidate to the election.  This is not thread safe, so every
+     * candidate should be added before ballots are added from several 
+     * threads.
      * @param name the candidate's name
      */
     public void addCandidate (String name) {
-        candidates[nextCandidate] = new Candidate (name);
+        names[nextCandidate] = name;
         nextCandidate++;
     }
     
     /**
-     * Adds a completed ballot to the election.
+     * Sets the number of threads that selectWinner uses to count and move
+     * ballots.  With more than one thread, the ballots are split into shards
+     * that are tabulated in parallel.  The result is the same for any level
+     * of parallelism.
+     * @param parallelism the number of threads to use.  The default is 1.
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public void setParallelism (int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+    
+    /**
+     * Sets whether selectWinner eliminates mathematically defeated candidates
+     * together.  When it is on, each round finds the largest group of 
+     * lowest candidates whose combined votes are fewer than the votes of the
+     * next candidate up, and eliminates the whole group at once.  None of
+     * those candidates could overtake that next candidate however their 
+     * ballots were transferred, so they would have been eliminated one 
+     * after another anyway, and the result is the same.  Only the number of
+     * rounds changes.
+     * @param batchElimination true to eliminate defeated candidates together.
+     * The default is false.
+     */
+    public void setBatchElimination (boolean batchElimination) {
+        this.batchElimination = batchElimination;
+    }
+    
+    /**
+     * Sets how selectWinner chooses between candidates tied for the fewest
+     * votes.  A strategy may eliminate several of them at once.  The same
+     * strategy is used by every tabulation of the election.
+     * @param tieBreak the strategy, or null to eliminate the tied candidate
+     * listed first on the ballot, which is the default
+     */
+    public void setTieBreakStrategy (TieBreakStrategy tieBreak) {
+        this.tieBreak = tieBreak;
+    }
+    
+    /**
+     * Sets a file that selectWinner saves the state of the tabulation to
+     * after every round, so that an interrupted tabulation can be continued
+     * with ElectionCheckpoint.resume.  The candidates and ballots are written
+     * once, when the tabulation starts, and each round only writes the 
+     * candidates' votes and the ballots' positions.
+     * @param file the checkpoint file.  Any existing file is replaced.
+     */
+    public void setCheckpoint (Path file) {
+        this.checkpoint = new ElectionCheckpoint(file);
+    }
+    
+    /**
+     * Restores the state saved in a checkpoint, so that selectWinner 
+     * continues from the round after the one that was saved.
+     * @param restored the ballots
+     * @param cursors the position each ballot had reached
+     * @param eliminated whether each candidate had been eliminated
+     * @param round the last completed round
+     * @param votes each candidate's votes at the end of that round
+     * @param tallies each candidate's votes at the start of every round up
+     * to and including that round, oldest first, for tie breaks that look
+     * back at them
+     * @param from the checkpoint that was read, to save later rounds to
+     */
+    void resume (BallotStore restored, short[] cursors, boolean[] eliminated,
+                 int round, int[] votes, int[][] tallies, ElectionCheckpoint from) {
+        gathered = true;
+        ballots = restored;
+        resumedCursors = cursors;
+        resumedEliminated = eliminated;
+        firstRound = round + 1;
+        resumedVotes = votes;
+        resumedTallies = tallies;
+        checkpoint = from;
+    }
+    
+    /**
+     * Registers a listener to be told about each round of tabulation when
+     * selectWinner runs.  Round reports are only built while at least one 
+     * listener is registered.
+     * @param listener the listener to add
+     */
+    public void addRoundListener (RoundListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Adds a completed ballot to the election.  Ballots may be added from
+     * several threads at once.  Each thread keeps its ballots in its own 
+     * buffer, and the buffers are merged when the election is tabulated, so
+     * every thread adding ballots must have finished, for example by being
+     * joined, before selectWinner or selectWinners is called.
      * @param ranks A correctly formulated ballot will have exactly 1 
      * entry with a rank of 1, exactly one entry with a rank of 2, etc.  If 
-     * there are n candidates on the ballot, the values in the rank array 
-     * passed to the constructor will be some permutation of the numbers 1 to 
-     * n.
-     * @throws IllegalArgumentException if the ballot is not valid.
+     * there are n candidates on the ballot, the rank array has n entries.  If
+     * the voter ranked k of the candidates, the ranked entries will be some
+     * permutation of the numbers 1 to k and the other entries will be 0.
+     * @throws InvalidBallotException if the ballot is not valid.
      */
     public void addBallot (int[] ranks) {
-        if (!isBallotValid(ranks)) {
-            throw new IllegalArgumentException("Invalid ballot");
+        addBallot(ranks, ranks.length);
+    }
+
+    /**
+     * Adds a completed ballot held in the first numRanks entries of an array.
+     * The array is not retained, so the caller may reuse it for the next 
+     * ballot.
+     * @param ranks the ranks for the ballot
+     * @param numRanks the number of ranks on the ballot
+     * @throws InvalidBallotException if the ballot is not valid.
+     */
+    void addBallot (int[] ranks, int numRanks) {
+        BallotBuffer buffer = buffer();
+        buffer.validator.check(ranks, numRanks);
+        buffer.ballots.add(ranks);
+    }
+
+    /**
+     * Adds a ballot that is already in preference order, as read from a 
+     * binary election file.  The array is not retained.
+     * @param preferences the ids of the ranked candidates, from the first
+     * choice to the last
+     * @param numRanked the number of candidates ranked on the ballot
+     * @throws InvalidBallotException if the ballot is not valid.
+     */
+    void addPreferences (int[] preferences, int numRanked) {
+        BallotBuffer buffer = buffer();
+        buffer.validator.checkPreferences(preferences, numRanked);
+        buffer.ballots.addPreferences(preferences, numRanked);
+    }
+
+    /**
+     * @return the calling thread's ballot buffer
+     * @throws IllegalStateException if the election has been tabulated
+     */
+    private BallotBuffer buffer() {
+        ThreadLocal<BallotBuffer> local = buffers;
+        if (gathered || local == null) {
+            throw new IllegalStateException(
+                    "Ballots cannot be added after the election is tabulated");
         }
-        Ballot newBallot = new Ballot(ranks);
-        assignBallotToCandidate(newBallot);
+        return local.get();
+    }
+
+    /**
+     * @return the candidates' names, in ballot order.  The array is shared
+     * and must not be changed.
+     */
+    String[] getCandidateNames() {
+        return names;
+    }
+
+    /**
+     * Gathers the ballots, as when the election is tabulated, so that they
+     * can be read.  No more ballots can be added afterwards.
+     * @return the ballots of the election, which must not be changed
+     */
+    BallotStore getBallots() {
+        gatherBallots();
+        return ballots;
     }
 
     /**
-     * Checks that the ballot is the right length and contains a permutation 
-     * of the numbers 1 to n, where n is the number of candidates.
-     * @param ranks the ballot to check
-     * @return true if the ballot is valid.
+     * Merges every thread's ballots into a single store the first time the
+     * election is tabulated.  If only one thread added ballots, its store
+     * is used as it is.  Tabulations that start together on several threads
+     * wait for the first to gather the ballots.
+     * 
+     * Afterwards no buffer holds any ballots, and the election no longer
+     * refers to its ThreadLocal, so threads that outlive the election, such
+     * as pool threads, do not keep a second copy of the ballots.
      */
-    private boolean isBallotValid(int[] ranks) {
-        if (ranks.length != candidates.length) {
-            return false;
+    private synchronized void gatherBallots() {
+        if (gathered) {
+            return;
+        }
+        gathered = true;
+        if (allBuffers.size() == 1) {
+            ballots = allBuffers.peek().ballots;
         }
-        int[] sortedRanks = Arrays.copyOf(ranks, ranks.length);
-        Arrays.sort(sortedRanks);
-        for (int i = 0; i < sortedRanks.length; i++) {
-            if (sortedRanks[i] != i + 1) {
-                return false;
+        else {
+            ballots = new BallotStore(names.length);
+            for (BallotBuffer buffer : allBuffers) {
+                ballots.addAll(buffer.ballots);
             }
         }
-        return true;
+        for (BallotBuffer buffer : allBuffers) {
+            buffer.release();
+        }
+        allBuffers.clear();
+        buffers.remove();
+        buffers = null;
     }
 
     /**
      * Determines which candidate is the top choice on the ballot and gives the
      * ballot to that candidate.
-     * @param newBallot a ballot that is not currently assigned to a candidate
+     * @param t the tabulation
+     * @param newBallot the index of a ballot group that is not currently 
+     * assigned to a candidate
+     * @return the index of the candidate that was given the ballot, or -1 if
+     * every candidate left on the ballot has been eliminated
      */
-    private void assignBallotToCandidate(Ballot newBallot) {
+    private int assignBallotToCandidate(Tabulation t, int newBallot) {
         while (true) {
-            int candidate = newBallot.getTopCandidate();
-            if (candidates[candidate].isEliminated()) {
-                newBallot.eliminateCandidate(candidate);
+            int candidate = t.cursors.getTopCandidate(newBallot);
+            if (candidate < 0) {
+                return candidate;
+            }
+            if (t.candidates[candidate].isEliminated()) {
+                t.cursors.advance(newBallot);
             }
             else {
-                candidates[candidate].addBallot(newBallot);
-                return;
+                t.candidates[candidate].addBallot(newBallot, 
+                                                ballots.getWeight(newBallot));
+                return candidate;
             }
             
         }
@@ -106,160 +418,460 @@ public class Election {
     
     /**
      * Apply the ranked choice voting algorithm to identify the winner.
+     * 
+     * Each candidate's vote count is kept in an array that is only updated
+     * for the ballots that move when a candidate is eliminated, and the
+     * remaining candidates are kept in a CandidateQueue so the candidate to
+     * eliminate is found in O(log n) rather than by scanning every count.
+     * 
+     * The ballots are not changed, so selectWinner may be called again, and
+     * may run on several threads at once, as may selectWinnerExcluding and
+     * selectWinners.  Only a tabulation of an election with a checkpoint
+     * should not overlap another, because both would write to the file.
      * @return If there is a winner, this method returns a list containing just
      * the winner's name is returned.  If there is a tie, this method returns a
      * list containing the names of the tied candidates.
+     * @throws UncheckedIOException if a checkpoint is set and cannot be 
+     * written
      */
     public List<String> selectWinner () {
-    	// String list that will be return when the winner is found
-    	List<String> winnerList = new ArrayList <>();
-    	
-    	Candidate candidate;
-    	String name;
-    	
-    	// Integer list with the number of votes for each candidate
-    	List<Integer> voteNumList = voteCounts(candidates);
-    	// candidate's index with the top votes
-    	int topVoteId = topVoteCandidate(voteNumList);
-    	
-    	// get total number of votes in the election
-    	int totalVoteNum = 0;
-    	for (int i = 0; i < candidates.length; i++) {
-    		totalVoteNum = totalVoteNum + candidates[i].getVotes();
-    	}
-    	
-    	// if the top candidate has the number of votes above 50%
-    	if (topVoteNum(voteNumList) > totalVoteNum/2) {
-    		candidate = candidates[topVoteId];
-    		name = candidate.getName();
-    		winnerList.add(name);
-    		return winnerList;
-    	}
-    	// if the top and bottom candidates have the same number of votes
-    	else if (isTied(voteNumList) == true) {
-    		for (int i = 0; i < voteNumList.size(); i++) {
-    			if (voteNumList.get(i) == topVoteNum(voteNumList)) {
-    				name = candidates[i].getName();
-    				winnerList.add(name);
-    			}
-    		}
-    		return winnerList;
-    	}
-    	// if both conditions are X
-    	else {
-    		// allocate the ballots that have the eliminated candidate
-    		eliminateBallot(voteNumList);
-    		// recursion
-    		return selectWinner();
-    	}
-    }
-    
-    /**
-     * get a list of number of first preference votes for each candidate
-     * @param names array with names of all candidates
-     * @return an arrayList with total votes for each candidate
-     */
-    private List<Integer> voteCounts (Candidate[] names){
-    	List<Integer> voteNumList = new ArrayList<>();
-    	for (Candidate candidate: names) {
-    		voteNumList.add(candidate.getVotes());
-    	}
-    	return voteNumList;
-    }
-    
-    /**
-     * find the position of the candidate with the highest total votes
-     * @param voteNumList an arrayList with total first preference votes for each candidate
-     * @return an index of the candidate with the top votes
-     */
-    private int topVoteCandidate (List<Integer> voteNumList) {
-    	int top = 0;
-    	int topId = 0;
-    	for (int i = 0; i < voteNumList.size(); i++) {
-    		if (top < voteNumList.get(i)) {
-    			top = voteNumList.get(i);
-    			topId = i;
-    		}
-    	}
-    	return topId;
-    }
-    
-    /**
-     * find the position of the candidate with the lowest total votes
-     * @param voteNumList an arrayList with total first preference votes for each candidate
-     * @return an index of the candidate with the least votes
-     */
-    private int eliminateCandidate (List<Integer> voteNumList) {
-    	int eliminate = topVoteNum(voteNumList);
-    	int eliminateId = topVoteCandidate(voteNumList);
-    	for (int i = 0; i < voteNumList.size(); i++) {
-    		if (eliminate > voteNumList.get(i)) {
-    			eliminate = voteNumList.get(i);
-    			eliminateId = i;
-    		}
-    	}
-    	return eliminateId;
-    }
-    
-    /**
-     * find the highest vote count
-     * @param voteNumList an arrayList with total first preference votes for each candidate
-     * @return the highest vote count in the array
-     */
-    private int topVoteNum (List<Integer> voteNumList) {
-    	int top = 0;
-    	for (int i = 0; i < voteNumList.size(); i++) {
-    		if (top < voteNumList.get(i)) {
-    			top = voteNumList.get(i);
-    		}
-    	}
-    	return top;
-    }
-    
-    /**
-     * check if there are tied candidates
-     * @param voteNumList an arrayList with total first preference votes for each candidate
-     * @return boolean; tied = true, not tied = false
-     */
-    private boolean isTied (List<Integer> voteNumList) {
-    	boolean tie = false;
-    	List<Integer> candidateNotTie = new ArrayList<>();
-    	int topVoteNum = topVoteNum(voteNumList);
-    	
-    	// add votes that are not tied to the candidateNotTie array list
-    	for (int vote : voteNumList) {
-    		if (vote != topVoteNum) {
-    			candidateNotTie.add(vote);
-    		}
-    	}
-    	// check if the votes have been allocated
-    	for (int num : candidateNotTie) {
-    		if (num == 0) {
-    			tie = true;
-    		}
-    	}
-    	return tie;
-    }
-    
-    /**
-     * if there is no winner, eliminate the candidate with the lowest number of first preference votes
-     * add a ballot to candidates that have second preference in the ballots an eliminated candidate is the first preference
-     * @param voteNumList an arrayList with total first preference votes for each candidate
-     */
-    private void eliminateBallot(List<Integer> voteNumList ) {
-    	// get index of candidate with least number of top choice vote
-    	int eliminateRankId = eliminateCandidate(voteNumList);
-    	Candidate name = candidates[eliminateRankId];
-    	System.out.print("Eliminating " + name.getName());
-    	System.out.println();
-    	// eliminate the candidate
-    	List<Ballot> toEliminate = name.eliminate();
-    	// assign the ballot of the eliminated candidate to the second preference
-    	for (int i = 0; i < toEliminate.size(); i++) {
-    		assignBallotToCandidate(toEliminate.get(i));
-    		
-    	}
+        gatherBallots();
+        Candidate[] candidates = newCandidates();
+        BallotCursors cursors;
+        if (resumedCursors != null) {
+            for (int c = 0; c < candidates.length; c++) {
+                if (resumedEliminated[c]) {
+                    candidates[c].eliminate();
+                }
+            }
+            cursors = new BallotCursors(ballots, resumedCursors.clone());
+        }
+        else {
+            cursors = new BallotCursors(ballots);
+        }
+        return tabulate(new Tabulation(candidates, cursors, firstRound, 
+                                       resumedVotes, resumedTallies, checkpoint));
+    }
+    
+    /**
+     * Finds the winner as selectWinner does, but as if some candidates had
+     * withdrawn before the count: they are eliminated before the first 
+     * round, and every ballot counts for its top choice among the others.
+     * This is a separate tabulation of the same ballots, which starts from
+     * the first round even if the election was resumed from a checkpoint,
+     * and saves no checkpoint.
+     * @param withdrawn the names of the candidates to leave out
+     * @return the winner, or the tied candidates, as for selectWinner
+     * @throws IllegalArgumentException if a name is not a candidate's name,
+     * or every candidate is left out
+     */
+    public List<String> selectWinnerExcluding (String... withdrawn) {
+        gatherBallots();
+        Candidate[] candidates = newCandidates();
+        int numRemaining = names.length;
+        for (String name : withdrawn) {
+            int c = Arrays.asList(names).indexOf(name);
+            if (c < 0) {
+                throw new IllegalArgumentException(name + " is not a candidate");
+            }
+            if (!candidates[c].isEliminated()) {
+                candidates[c].eliminate();
+                numRemaining--;
+            }
+        }
+        if (names.length > 0 && numRemaining == 0) {
+            throw new IllegalArgumentException("At least one candidate must remain");
+        }
+        return tabulate(new Tabulation(candidates, new BallotCursors(ballots),
+                                       1, null, null, null));
+    }
+    
+    /**
+     * @return a new Candidate for each name, none of them eliminated
+     */
+    private Candidate[] newCandidates () {
+        Candidate[] candidates = new Candidate[names.length];
+        for (int c = 0; c < names.length; c++) {
+            candidates[c] = new Candidate(names[c]);
+        }
+        return candidates;
+    }
+    
+    /**
+     * Runs a tabulation, on several threads if the parallelism is set.
+     * @param t the tabulation
+     * @return the winner, or the tied candidates
+     */
+    private List<String> tabulate (Tabulation t) {
+        if (names.length == 0) {
+            return new ArrayList<>();
+        }
+        ShardedTabulation shards = null;
+        if (parallelism > 1) {
+            shards = new ShardedTabulation(ballots, t.cursors, t.candidates, 
+                                           parallelism);
+        }
+        try {
+            return selectWinner(shards, t);
+        } finally {
+            if (shards != null) {
+                shards.close();
+            }
+        }
+    }
+    
+    /**
+     * Fill several seats by single transferable vote, as described in
+     * SingleTransferableVote.  The count has its own candidates and cursors,
+     * so it does not affect selectWinner.  Round listeners are not told
+     * about the count.
+     * @param seats the number of seats to fill
+     * @return the names of the elected candidates, in the order they were 
+     * elected
+     * @throws IllegalArgumentException if seats is less than 1
+     */
+    public List<String> selectWinners (int seats) {
+        if (seats < 1) {
+            throw new IllegalArgumentException("There must be at least 1 seat");
+        }
+        gatherBallots();
+        return new SingleTransferableVote(ballots, newCandidates(), seats)
+                .electWinners();
+    }
+    
+    /**
+     * Runs the elimination rounds.
+     * @param shards the parallel tabulation to move ballots with, or null to
+     * move them on this thread
+     * @param t the tabulation
+     * @return the winner, or the tied candidates
+     */
+    private List<String> selectWinner (ShardedTabulation shards, Tabulation t) {
+        Candidate[] candidates = t.candidates;
+        // The number of first preference votes for each candidate
+        int[] voteCounts = new int[candidates.length];
+        int exhausted = 0;
+        if (shards != null) {
+            exhausted = shards.assignAll(voteCounts);
+        }
+        else {
+            for (int b = 0; b < ballots.size(); b++) {
+                int candidate = assignBallotToCandidate(t, b);
+                if (candidate < 0) {
+                    exhausted += ballots.getWeight(b);
+                }
+                else {
+                    voteCounts[candidate] += ballots.getWeight(b);
+                }
+            }
+        }
+        if (t.expectedVotes != null && !Arrays.equals(voteCounts, t.expectedVotes)) {
+            throw new IllegalStateException(
+                    "The ballots in the checkpoint do not match its tallies");
+        }
+        if (t.checkpoint != null) {
+            if (!t.checkpoint.hasBallots()) {
+                saveBallots(t.checkpoint);
+            }
+            saveCheckpoint(t, t.firstRound - 1, voteCounts);
+        }
+        CandidateQueue remaining = new CandidateQueue(voteCounts, candidates);
+        
+        // candidate's index with the top votes
+        int topVoteId = 0;
+        for (int i = 1; i < voteCounts.length; i++) {
+            if (voteCounts[i] > voteCounts[topVoteId]) {
+                topVoteId = i;
+            }
+        }
+        
+        // The candidates that received ballots in the latest elimination,
+        // and how many each received.
+        int[] received = new int[candidates.length];
+        IntList receivers = new IntList();
+        
+        // The candidates eliminated in the current round, and their ballots.
+        IntList eliminating = new IntList();
+        IntList[] toEliminate = new IntList[candidates.length];
+        long[] sortKeys = batchElimination ? new long[candidates.length] : null;
+        
+        // Every round's tallies, if the tie break looks back at them,
+        // starting with the rounds before a checkpoint was resumed.
+        TallyHistory history = null;
+        if (tieBreak != null && tieBreak.needsHistory()) {
+            history = new TallyHistory(candidates.length);
+            if (t.earlierTallies != null) {
+                for (int[] tallies : t.earlierTallies) {
+                    history.record(tallies);
+                }
+            }
+        }
+        
+        boolean reporting = !listeners.isEmpty();
+        for (int round = t.firstRound; ; round++) {
+            long roundStart = reporting ? System.nanoTime() : 0;
+            if (history != null) {
+                history.record(voteCounts);
+            }
+            
+            // if the top candidate has the number of votes above 50% of the
+            // ballots that are not exhausted
+            int continuingVoteNum = ballots.getBallotCount() - exhausted;
+            if (voteCounts[topVoteId] > continuingVoteNum / 2) {
+                if (reporting) {
+                    reportRound(round, voteCounts, continuingVoteNum, eliminating, 
+                                received, 0, exhausted, 0, roundStart);
+                }
+                List<String> winnerList = new ArrayList<>();
+                winnerList.add(candidates[topVoteId].getName());
+                return winnerList;
+            }
+            // if the top and bottom remaining candidates have the same number 
+            // of votes
+            if (voteCounts[remaining.peek()] == voteCounts[topVoteId]) {
+                if (reporting) {
+                    reportRound(round, voteCounts, continuingVoteNum, eliminating,
+                                received, 0, exhausted, 0, roundStart);
+                }
+                return remainingNames(remaining);
+            }
+            
+            // Eliminate the lowest candidate, or every defeated candidate.
+            // They are all marked as eliminated before any ballots move, so 
+            // no ballot is transferred to a candidate leaving in this round.
+            int numEliminating = 1;
+            if (batchElimination) {
+                numEliminating = countDefeated(remaining, voteCounts, sortKeys);
+            }
+            if (numEliminating == 1 && tieBreak != null 
+                    && isLowestTied(remaining, voteCounts)) {
+                int[] chosen = tieBreak.choose(tiedLowest(remaining, voteCounts),
+                                               round, history);
+                if (chosen.length == 0) {
+                    throw new IllegalStateException(
+                            "The tie break did not choose a candidate");
+                }
+                for (int candidate : chosen) {
+                    if (!remaining.contains(candidate)
+                            || voteCounts[candidate] != voteCounts[remaining.peek()]) {
+                        throw new IllegalStateException("The tie break chose "
+                                + "candidate " + candidate + ", who is not tied");
+                    }
+                    remaining.remove(candidate);
+                    eliminating.add(candidate);
+                }
+                numEliminating = chosen.length;
+            }
+            else {
+                for (int i = 0; i < numEliminating; i++) {
+                    eliminating.add(remaining.poll());
+                }
+            }
+            for (int i = 0; i < numEliminating; i++) {
+                toEliminate[i] = candidates[eliminating.get(i)].eliminate();
+            }
+            
+            // allocate the ballots that have the eliminated candidates
+            long transferStart = reporting ? System.nanoTime() : 0;
+            int roundExhausted = 0;
+            for (int i = 0; i < numEliminating; i++) {
+                if (shards != null) {
+                    roundExhausted += shards.transfer(eliminating.get(i), 
+                                                      received, receivers);
+                }
+                else {
+                    roundExhausted += transferBallots(t, toEliminate[i], 
+                                                      received, receivers);
+                }
+                toEliminate[i] = null;
+            }
+            exhausted += roundExhausted;
+            if (reporting) {
+                // The transfers have not been added to voteCounts yet, so it
+                // still holds the counts at the start of the round.
+                reportRound(round, voteCounts, continuingVoteNum, eliminating,
+                            received, roundExhausted, exhausted, 
+                            System.nanoTime() - transferStart, roundStart);
+            }
+            for (int i = 0; i < numEliminating; i++) {
+                voteCounts[eliminating.get(i)] = 0;
+            }
+            eliminating.clear();
+            for (int i = 0; i < receivers.size(); i++) {
+                int receiver = receivers.get(i);
+                voteCounts[receiver] += received[receiver];
+                received[receiver] = 0;
+                remaining.increased(receiver);
+                if (voteCounts[receiver] > voteCounts[topVoteId]
+                        || (voteCounts[receiver] == voteCounts[topVoteId] 
+                            && receiver < topVoteId)) {
+                    topVoteId = receiver;
+                }
+            }
+            receivers.clear();
+            if (t.checkpoint != null) {
+                saveCheckpoint(t, round, voteCounts);
+            }
+        }
+    }
+    
+    /**
+     * Writes the candidates and ballots to the checkpoint file.
+     * @param checkpoint the checkpoint
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    private void saveBallots (ElectionCheckpoint checkpoint) {
+        try {
+            checkpoint.create(names, ballots);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Saves the state at the end of a round to the checkpoint file.
+     * @param t the tabulation, which has a checkpoint
+     * @param round the round that was completed, or 0 before the first
+     * @param voteCounts each candidate's votes
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    private void saveCheckpoint (Tabulation t, int round, int[] voteCounts) {
+        try {
+            t.checkpoint.save(round, t.candidates, voteCounts, t.cursors);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * @param remaining the candidates that have not been eliminated
+     * @param voteCounts each candidate's votes
+     * @return true if another candidate has as few votes as the front of the
+     * queue.  The second lowest candidate is a child of the front.
+     */
+    private boolean isLowestTied (CandidateQueue remaining, int[] voteCounts) {
+        int fewest = voteCounts[remaining.peek()];
+        return (remaining.size() > 1 && voteCounts[remaining.get(1)] == fewest)
+                || (remaining.size() > 2 && voteCounts[remaining.get(2)] == fewest);
+    }
+    
+    /**
+     * @param remaining the candidates that have not been eliminated
+     * @param voteCounts each candidate's votes
+     * @return the candidates with the fewest votes, in ballot order
+     */
+    private int[] tiedLowest (CandidateQueue remaining, int[] voteCounts) {
+        int fewest = voteCounts[remaining.peek()];
+        IntList tied = new IntList();
+        for (int c = 0; c < names.length; c++) {
+            if (remaining.contains(c) && voteCounts[c] == fewest) {
+                tied.add(c);
+            }
+        }
+        return tied.toArray();
+    }
+    
+    /**
+     * Finds how many of the lowest remaining candidates are mathematically
+     * defeated: the largest k such that the k lowest candidates together 
+     * have fewer votes than the (k + 1)th lowest.
+     * @param remaining the candidates that have not been eliminated
+     * @param voteCounts each candidate's votes
+     * @param sortKeys scratch space with room for every candidate
+     * @return the number of candidates to eliminate, at least 1.  They are
+     * the first candidates in the queue.
+     */
+    private int countDefeated (CandidateQueue remaining, int[] voteCounts,
+                               long[] sortKeys) {
+        // Sort by votes, then by ballot position, the same order as the queue.
+        int numRemaining = remaining.size();
+        for (int i = 0; i < numRemaining; i++) {
+            int candidate = remaining.get(i);
+            sortKeys[i] = ((long) voteCounts[candidate] << 32) | candidate;
+        }
+        Arrays.sort(sortKeys, 0, numRemaining);
+        
+        long lowestVotes = 0;
+        int defeated = 1;
+        for (int k = 1; k < numRemaining; k++) {
+            lowestVotes += sortKeys[k - 1] >>> 32;
+            if (lowestVotes < sortKeys[k] >>> 32) {
+                defeated = k;
+            }
+        }
+        return defeated;
+    }
+    
+    /**
+     * Builds a report of a round and gives it to every listener.
+     * @param round the round number
+     * @param votes each candidate's votes at the start of the round.  The
+     * array is copied.
+     * @param continuing the number of continuing ballots
+     * @param eliminated the candidates eliminated, which is empty in the
+     * final round
+     * @param received the ballots each candidate received this round.  The
+     * array is copied.
+     * @param exhausted the ballots exhausted this round
+     * @param totalExhausted the ballots exhausted by the end of the round
+     * @param transferNanos the time taken to move ballots
+     * @param roundStart the value of System.nanoTime at the start of the round
+     */
+    private void reportRound (int round, int[] votes, int continuing,
+                              IntList eliminated, int[] received, int exhausted,
+                              int totalExhausted, long transferNanos,
+                              long roundStart) {
+        RoundReport report = new RoundReport(round, getCandidateNames(), votes.clone(), 
+                continuing, eliminated.toArray(), received.clone(), exhausted, 
+                totalExhausted, transferNanos, System.nanoTime() - roundStart);
+        for (RoundListener listener : listeners) {
+            listener.roundCompleted(report);
+        }
+    }
+    
+    /**
+     * @param remaining the candidates that have not been eliminated
+     * @return the names of the remaining candidates, in ballot order
+     */
+    private List<String> remainingNames (CandidateQueue remaining) {
+        List<String> remainingNames = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            if (remaining.contains(i)) {
+                remainingNames.add(names[i]);
+            }
+        }
+        return remainingNames;
+    }
+    
+    /**
+     * Give each ballot of an eliminated candidate to the next preference on 
+     * that ballot.
+     * @param t the tabulation
+     * @param toEliminate the ballot groups for which the eliminated candidate
+     * was the top choice
+     * @param received for each candidate, incremented by the number of 
+     * ballots they receive
+     * @param receivers each candidate that receives at least one ballot is 
+     * added to this list once
+     * @return the number of ballots that were exhausted
+     */
+    private int transferBallots(Tabulation t, IntList toEliminate, int[] received,
+                                IntList receivers) {
+        int exhausted = 0;
+        for (int i = 0; i < toEliminate.size(); i++) {
+            int ballot = toEliminate.get(i);
+            int receiver = assignBallotToCandidate(t, ballot);
+            if (receiver < 0) {
+                exhausted += ballots.getWeight(ballot);
+            }
+            else {
+                if (received[receiver] == 0) {
+                    receivers.add(receiver);
+                }
+                received[receiver] += ballots.getWeight(ballot);
+            }
+        }
+        return exhausted;
     }
 
 }
-    
@@ -0,0 +1,518 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * An ElectionCheckpoint saves the state of a tabulation after every round,
+ * so that a long tabulation that is interrupted can be resumed from the
+ * last completed round instead of being started again from the election
+ * file.  All numbers are big-endian.
+ *
+ * The file begins with a 24 byte header:
+ *
+ *     offset  size  contents
+ *          0     4  the magic bytes "RCVC"
+ *          4     4  the format version, currently 2
+ *          8     4  the number of candidates, n
+ *         12     4  the number of ballot groups, g
+ *         16     4  the number of ballots in all the groups
+ *         20     4  the number of preferences on all the ballot groups, p
+ *
+ * The header is followed by the n candidate names, each stored as a 4 byte
+ * length and that many bytes of UTF-8, and then by the ballots as they are
+ * held in a BallotStore: g + 1 four byte offsets, p two byte candidate ids
+ * and g four byte group weights.  This part is written once, when the
+ * tabulation starts.
+ *
+ * Two state slots come last, each 8 + 5n + 2g bytes long:
+ *
+ *     size  contents
+ *        4  the number of the last completed round, 0 before the first
+ *        n  1 for each candidate who has been eliminated, otherwise 0
+ *       4n  each candidate's votes
+ *       2g  each ballot group's cursor
+ *        4  the CRC-32 of the rest of the slot
+ *
+ * After round r the state is written to slot r % 2, so the previous state
+ * is intact while the next is written.  A slot whose checksum does not
+ * match, because writing it was interrupted, is ignored when resuming.
+ *
+ * The tallies of every round follow the slots, 4n bytes for each round:
+ * each candidate's votes at the start of round r + 1 are at offset 4nr.
+ * They are written and forced to the disk before the slot of round r, so
+ * a complete slot always has all the tallies before it, and a tie break
+ * that looks back at earlier rounds sees the same rounds after resuming.
+ */
+public class ElectionCheckpoint {
+    /** The first four bytes of every checkpoint file. */
+    static final byte[] MAGIC = {'R', 'C', 'V', 'C'};
+
+    /** The current format version. */
+    static final int VERSION = 2;
+
+    // The size of the fixed part of the header.
+    private static final int HEADER_SIZE = 24;
+
+    // The size of the buffer used to read and write the file.
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    // The checkpoint file.
+    private final Path file;
+
+    // The file offset of the first state slot, or -1 if the ballots have
+    // not been written yet, and the size of a slot.
+    private long slotStart = -1;
+    private long slotSize;
+
+    // The file is read and written through this buffer.
+    private ByteBuffer buffer;
+
+    /**
+     * Create a checkpoint that will be written to a file.  Nothing is written
+     * until the tabulation starts.
+     * @param file the checkpoint file.  Any existing file is replaced.
+     */
+    ElectionCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return true if the candidates and ballots are in the file, so that
+     * only the state needs to be saved
+     */
+    boolean hasBallots() {
+        return slotStart >= 0;
+    }
+
+    /**
+     * Writes the candidates and ballots, replacing any existing file.
+     * @param names the candidates' names
+     * @param ballots the ballots being tabulated
+     * @throws IOException if the file cannot be written
+     */
+    void create(String[] names, BallotStore ballots) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int numGroups = ballots.size();
+            int[] offsets = ballots.getOffsetArray();
+            ByteBuffer out = buffer();
+            out.put(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(names.length);
+            out.putInt(numGroups);
+            out.putInt(ballots.getBallotCount());
+            out.putInt(offsets[numGroups]);
+            for (String candidate : names) {
+                byte[] name = candidate.getBytes(StandardCharsets.UTF_8);
+                putInt(channel, name.length, null);
+                putBytes(channel, name, name.length, null);
+            }
+            putInts(channel, offsets, numGroups + 1, null);
+            putShorts(channel, ballots.getPreferenceArray(), offsets[numGroups], null);
+            putInts(channel, ballots.getWeightArray(), numGroups, null);
+            flush(channel, null);
+            slotStart = channel.position();
+            slotSize = slotSize(names.length, numGroups);
+        }
+    }
+
+    /**
+     * Saves the state at the end of a round, and the tallies for the start
+     * of the next.
+     * @param round the number of the round that was completed, or 0 before
+     * the first round
+     * @param candidates the candidates, which record who has been eliminated
+     * @param voteCounts each candidate's votes
+     * @param cursors the position each ballot has reached
+     * @throws IOException if the file cannot be written
+     */
+    void save(int round, Candidate[] candidates, int[] voteCounts,
+              BallotCursors cursors) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.position(tallyStart() + 4L * candidates.length * round);
+            buffer();
+            putInts(channel, voteCounts, candidates.length, null);
+            flush(channel, null);
+            channel.force(false);
+            
+            channel.position(slotStart + (round & 1) * slotSize);
+            CRC32 crc = new CRC32();
+            ByteBuffer out = buffer();
+            out.putInt(round);
+            for (Candidate candidate : candidates) {
+                put(channel, 1, crc);
+                out.put((byte) (candidate.isEliminated() ? 1 : 0));
+            }
+            putInts(channel, voteCounts, candidates.length, crc);
+            short[] positions = cursors.getCursorArray();
+            putShorts(channel, positions, positions.length, crc);
+            flush(channel, crc);
+            putInt(channel, (int) crc.getValue(), null);
+            flush(channel, null);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Loads an election from a checkpoint file, in the state saved at the
+     * end of the last completed round.  When selectWinner is called, the
+     * tabulation continues from the next round, and saves its state to the
+     * same file after every round.
+     * @param file the checkpoint file
+     * @return the election
+     * @throws IOException if the file cannot be read
+     * @throws ElectionFormatException if the file is not a checkpoint file,
+     * or no round was saved completely
+     */
+    public static Election resume(Path file)
+            throws IOException, ElectionFormatException {
+        ElectionCheckpoint checkpoint = new ElectionCheckpoint(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return checkpoint.read(channel);
+        }
+    }
+
+    /**
+     * Checks whether a file is a checkpoint file by looking at its first
+     * bytes.
+     * @param file the file to check
+     * @return true if the file starts with the checkpoint magic bytes
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isCheckpointFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer start = ByteBuffer.allocate(MAGIC.length);
+            while (start.hasRemaining() && channel.read(start) >= 0) {
+                // keep reading until the magic bytes are in or the file ends
+            }
+            if (start.hasRemaining()) {
+                return false;
+            }
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (start.get(i) != MAGIC[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reads the file and restores the election.
+     */
+    private Election read(FileChannel channel)
+            throws IOException, ElectionFormatException {
+        ByteBuffer in = buffer();
+        in.flip();
+        require(channel, HEADER_SIZE);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (in.get() != MAGIC[i]) {
+                throw new ElectionFormatException(file + " is not a checkpoint file.");
+            }
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new ElectionFormatException("Checkpoint version " + version
+                    + " is not supported.");
+        }
+        int numCandidates = in.getInt();
+        int numGroups = in.getInt();
+        int ballotCount = in.getInt();
+        int numPreferences = in.getInt();
+        if (numCandidates < 0 || numCandidates > BallotStore.MAX_CANDIDATES
+                || numGroups < 0 || numPreferences < 0) {
+            throw truncated();
+        }
+
+        Election election = new Election(numCandidates);
+        for (int c = 0; c < numCandidates; c++) {
+            require(channel, 4);
+            int length = in.getInt();
+            if (length < 0 || length > channel.size()) {
+                throw truncated();
+            }
+            byte[] name = new byte[length];
+            getBytes(channel, name, length);
+            election.addCandidate(new String(name, StandardCharsets.UTF_8));
+        }
+
+        // The counts in the header are checked against what is left of the
+        // file before any arrays are made from them.
+        long ballotStart = channel.position() - in.remaining();
+        if (4L * (numGroups + 1L) + 2L * numPreferences + 4L * numGroups
+                > channel.size() - ballotStart) {
+            throw truncated();
+        }
+        int[] offsets = new int[numGroups + 1];
+        getInts(channel, offsets, numGroups + 1);
+        short[] preferences = new short[numPreferences];
+        getShorts(channel, preferences, numPreferences);
+        int[] weights = new int[numGroups];
+        getInts(channel, weights, numGroups);
+        checkBallots(numCandidates, offsets, preferences, weights, numGroups, 
+                     ballotCount);
+        slotStart = channel.position() - in.remaining();
+        slotSize = slotSize(numCandidates, numGroups);
+
+        // Use the latest slot that was written completely.
+        int round = -1;
+        long slot = -1;
+        for (int s = 0; s < 2; s++) {
+            long start = slotStart + s * slotSize;
+            int slotRound = readSlotRound(channel, start);
+            if (slotRound > round) {
+                round = slotRound;
+                slot = start;
+            }
+        }
+        if (slot < 0) {
+            throw new ElectionFormatException("The checkpoint " + file
+                    + " has no complete round.");
+        }
+
+        channel.position(slot + 4);
+        in.clear().flip();
+        boolean[] eliminated = new boolean[numCandidates];
+        for (int c = 0; c < numCandidates; c++) {
+            require(channel, 1);
+            eliminated[c] = in.get() != 0;
+        }
+        int[] votes = new int[numCandidates];
+        getInts(channel, votes, numCandidates);
+        short[] cursors = new short[numGroups];
+        getShorts(channel, cursors, numGroups);
+        for (int g = 0; g < numGroups; g++) {
+            if (cursors[g] < 0 || cursors[g] > offsets[g + 1] - offsets[g]) {
+                throw truncated();
+            }
+        }
+
+        // The tallies at the start of every round up to the next
+        long tallyStart = tallyStart();
+        if (tallyStart + 4L * numCandidates * round > channel.size()) {
+            throw truncated();
+        }
+        channel.position(tallyStart);
+        in.clear().flip();
+        int[][] tallies = new int[round][numCandidates];
+        for (int[] roundTallies : tallies) {
+            getInts(channel, roundTallies, numCandidates);
+        }
+
+        BallotStore ballots = new BallotStore(numCandidates, preferences, offsets,
+                                              weights, numGroups, ballotCount);
+        election.resume(ballots, cursors, eliminated, round, votes, tallies, this);
+        return election;
+    }
+
+    /**
+     * @return the round number saved in a slot, or -1 if the slot is not
+     * complete or its checksum does not match
+     */
+    private int readSlotRound(FileChannel channel, long start) throws IOException {
+        if (start + slotSize > channel.size()) {
+            return -1;
+        }
+        channel.position(start);
+        ByteBuffer in = buffer;
+        in.clear().flip();
+        CRC32 crc = new CRC32();
+        long remaining = slotSize - 4;
+        int round = -1;
+        boolean first = true;
+        while (remaining > 0) {
+            in.clear();
+            if (in.limit() > remaining) {
+                in.limit((int) remaining);
+            }
+            while (in.hasRemaining() && channel.read(in) >= 0) {
+                // fill the buffer with the slot
+            }
+            in.flip();
+            if (first) {
+                round = in.getInt(0);
+                first = false;
+            }
+            remaining -= in.remaining();
+            crc.update(in);
+        }
+        in.clear().limit(4);
+        while (in.hasRemaining() && channel.read(in) >= 0) {
+            // read the checksum
+        }
+        if (in.hasRemaining() || in.getInt(0) != (int) crc.getValue()) {
+            return -1;
+        }
+        return round;
+    }
+
+    /**
+     * @return the file offset of the tallies, after the two slots
+     */
+    private long tallyStart() {
+        return slotStart + 2 * slotSize;
+    }
+
+    private static long slotSize(int numCandidates, int numGroups) {
+        return 8 + 5L * numCandidates + 2L * numGroups;
+    }
+
+    /**
+     * Checks that the ballots read from the file make a valid BallotStore,
+     * so that a damaged file is reported here rather than failing in the
+     * middle of the tabulation.
+     * @throws ElectionFormatException if the offsets go backwards or do not
+     * end at the number of preferences, an id is not a candidate, a weight
+     * is not positive, or the weights do not add up to the ballot count
+     */
+    private void checkBallots(int numCandidates, int[] offsets, short[] preferences,
+                              int[] weights, int numGroups, int ballotCount)
+            throws ElectionFormatException {
+        if (offsets[0] != 0 || offsets[numGroups] != preferences.length) {
+            throw truncated();
+        }
+        long totalWeight = 0;
+        for (int g = 0; g < numGroups; g++) {
+            if (offsets[g + 1] < offsets[g] || weights[g] <= 0) {
+                throw truncated();
+            }
+            totalWeight += weights[g];
+        }
+        if (totalWeight != ballotCount) {
+            throw truncated();
+        }
+        for (short candidate : preferences) {
+            if (candidate < 0 || candidate >= numCandidates) {
+                throw truncated();
+            }
+        }
+    }
+
+    private ElectionFormatException truncated() {
+        return new ElectionFormatException("The checkpoint " + file
+                + " is damaged or incomplete.");
+    }
+
+    private ByteBuffer buffer() {
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    // Writing.  Values are put into the buffer, which is written to the
+    // channel whenever it fills.  If a CRC is given, the bytes written are
+    // added to it.
+
+    private void put(FileChannel channel, int bytes, CRC32 crc) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, crc);
+        }
+    }
+
+    private void putInt(FileChannel channel, int value, CRC32 crc) throws IOException {
+        put(channel, 4, crc);
+        buffer.putInt(value);
+    }
+
+    private void putBytes(FileChannel channel, byte[] values, int count, CRC32 crc)
+            throws IOException {
+        for (int i = 0; i < count; ) {
+            put(channel, 1, crc);
+            int n = Math.min(buffer.remaining(), count - i);
+            buffer.put(values, i, n);
+            i += n;
+        }
+    }
+
+    private void putInts(FileChannel channel, int[] values, int count, CRC32 crc)
+            throws IOException {
+        for (int i = 0; i < count; ) {
+            put(channel, 4, crc);
+            int n = Math.min(buffer.remaining() / 4, count - i);
+            buffer.asIntBuffer().put(values, i, n);
+            buffer.position(buffer.position() + n * 4);
+            i += n;
+        }
+    }
+
+    private void putShorts(FileChannel channel, short[] values, int count, CRC32 crc)
+            throws IOException {
+        for (int i = 0; i < count; ) {
+            put(channel, 2, crc);
+            int n = Math.min(buffer.remaining() / 2, count - i);
+            buffer.asShortBuffer().put(values, i, n);
+            buffer.position(buffer.position() + n * 2);
+            i += n;
+        }
+    }
+
+    private void flush(FileChannel channel, CRC32 crc) throws IOException {
+        buffer.flip();
+        if (crc != null) {
+            crc.update(buffer.duplicate());
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Reading.  The buffer holds the unread bytes between its position and
+    // limit, and is refilled from the channel as needed.
+
+    /**
+     * Makes sure the buffer holds at least a number of unread bytes.
+     * @throws ElectionFormatException if the file ends first
+     */
+    private void require(FileChannel channel, int bytes)
+            throws IOException, ElectionFormatException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw truncated();
+            }
+        }
+        buffer.flip();
+    }
+
+    private void getBytes(FileChannel channel, byte[] values, int count)
+            throws IOException, ElectionFormatException {
+        for (int i = 0; i < count; ) {
+            require(channel, 1);
+            int n = Math.min(buffer.remaining(), count - i);
+            buffer.get(values, i, n);
+            i += n;
+        }
+    }
+
+    private void getInts(FileChannel channel, int[] values, int count)
+            throws IOException, ElectionFormatException {
+        for (int i = 0; i < count; ) {
+            require(channel, 4);
+            int n = Math.min(buffer.remaining() / 4, count - i);
+            buffer.asIntBuffer().get(values, i, n);
+            buffer.position(buffer.position() + n * 4);
+            i += n;
+        }
+    }
+
+    private void getShorts(FileChannel channel, short[] values, int count)
+            throws IOException, ElectionFormatException {
+        for (int i = 0; i < count; ) {
+            require(channel, 2);
+            int n = Math.min(buffer.remaining() / 2, count - i);
+            buffer.asShortBuffer().get(values, i, n);
+            buffer.position(buffer.position() + n * 2);
+            i += n;
+        }
+    }
+}
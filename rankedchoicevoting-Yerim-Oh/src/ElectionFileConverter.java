@@ -0,0 +1,76 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Converts an election file from the text format described in 
+ * RankedChoiceVoting to the binary format described in BinaryElectionFormat.
+ * The ballots are validated as they are converted, and are streamed from one
+ * file to the other, so elections of any size can be converted.
+ *
+ * The binary file is written under a temporary name in the same directory
+ * and only renamed once every ballot has been converted, so a text file
+ * that turns out to be invalid partway through leaves no binary file
+ * behind, rather than one holding just the ballots before the bad line.
+ *
+ * RankedChoiceVoting recognizes binary election files automatically, so the
+ * converted file can be used anywhere the text file was.
+ */
+public class ElectionFileConverter {
+    /**
+     * Converts an election file.
+     * @param args the name of the text election file to read, followed by 
+     * the name of the binary election file to write.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println ("Please provide the name of the text election " +
+                                "file and the name of the binary file to " +
+                                "create on the command line.");
+            return;
+        }
+
+        try {
+            long numBallots = convert(Paths.get(args[0]), Paths.get(args[1]));
+            System.out.println ("Converted " + numBallots + " ballots.");
+        } catch (NoSuchFileException e) {
+            System.out.println ("Election file " + args[0] + " was not found.");
+        } catch (ElectionFormatException e) {
+            System.out.println (e.getMessage());
+        } catch (IOException e) {
+            System.out.println ("Could not convert election file " + args[0]
+                                + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Converts an election file.  If the conversion fails, the binary file
+     * is left as it was.
+     * @param textFile the text election file to read
+     * @param binaryFile the binary election file to write
+     * @return the number of ballots converted
+     * @throws IOException if a file cannot be read or written
+     * @throws ElectionFormatException if the text file is not valid
+     */
+    static long convert(Path textFile, Path binaryFile)
+            throws IOException, ElectionFormatException {
+        Path directory = binaryFile.toAbsolutePath().getParent();
+        Path partial = Files.createTempFile(directory, 
+                binaryFile.getFileName().toString(), ".partial");
+        try {
+            long numBallots;
+            try (BinaryElectionWriter writer = new BinaryElectionWriter(partial)) {
+                ElectionLoader.read(textFile, writer);
+                numBallots = writer.getBallotCount();
+            }
+            Files.move(partial, binaryFile, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            return numBallots;
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * Thrown when an election file cannot be read because its contents are not
+ * formatted correctly.  The message is suitable for displaying to the user.
+ */
+public class ElectionFormatException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Create a new exception
+     * @param message a description of the problem, including where in the
+     * file it was found
+     */
+    public ElectionFormatException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An ElectionLoader reads an election file in the format described in
+ * RankedChoiceVoting and builds the corresponding Election, or passes its
+ * contents to an ElectionSink.
+ *
+ * The file is memory-mapped and the ballots are parsed directly from the
+ * mapped bytes into a reused array, so nothing is allocated for a ballot
+ * line.  Only the candidate names, and the text of a line that cannot be
+ * parsed, are ever decoded into Strings.
+ *
+ * Files larger than the mapping window are mapped in consecutive windows,
+ * each of which starts at the beginning of a line.
+ */
+public class ElectionLoader {
+    // The largest region of the file that is mapped at one time, unless a
+    // test asks for smaller windows.
+    private static final long WINDOW_SIZE = 1L << 30;
+
+    // Any rank larger than this would overflow while parsing the next digit.
+    private static final int MAX_PARSEABLE = (Integer.MAX_VALUE - 9) / 10;
+
+    // The file being read and its size in bytes.
+    private final FileChannel channel;
+    private final long fileSize;
+
+    // The largest region of the file that is mapped at one time.
+    private final long windowSize;
+
+    // The currently mapped window and the file offset at which it starts.
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+
+    // The position in the window of the next unread byte.
+    private int pos;
+
+    // The bounds in the window of the current line, excluding the line
+    // terminator, and its 1-based line number in the file.
+    private int lineStart;
+    private int lineEnd;
+    private int lineNumber;
+
+    // Holds the ranks of the ballot being parsed.  Grows as needed.
+    private int[] ranks = new int[16];
+
+    /**
+     * Reads the election data in a file.
+     * @param file the election file
+     * @return the election described by the file, with all ballots added
+     * @throws IOException if the file cannot be read
+     * @throws ElectionFormatException if the file is not correctly formatted
+     * or contains a ballot that is not valid
+     */
+    public static Election load(Path file)
+            throws IOException, ElectionFormatException {
+        ElectionBuilder builder = new ElectionBuilder();
+        read(file, builder);
+        return builder.election;
+    }
+
+    /**
+     * Reads the election data in a file and passes it to a sink.
+     * @param file the election file
+     * @param sink receives the candidates and ballots as they are read
+     * @throws IOException if the file cannot be read or the sink fails
+     * @throws ElectionFormatException if the file is not correctly formatted
+     * or the sink rejects a ballot
+     */
+    public static void read(Path file, ElectionSink sink)
+            throws IOException, ElectionFormatException {
+        read(file, sink, WINDOW_SIZE);
+    }
+
+    /**
+     * Reads the election data in a file through mapped windows of a given
+     * size, so that tests can cross window boundaries with small files.
+     * @param file the election file
+     * @param sink receives the candidates and ballots as they are read
+     * @param windowSize the largest region of the file to map at one time
+     * @throws IOException if the file cannot be read or the sink fails
+     * @throws ElectionFormatException if the file is not correctly formatted,
+     * the sink rejects a ballot, or a line is longer than a window
+     */
+    static void read(Path file, ElectionSink sink, long windowSize)
+            throws IOException, ElectionFormatException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            new ElectionLoader(channel, windowSize).read(sink);
+        }
+    }
+
+    /**
+     * Builds an Election from the contents of a file.
+     */
+    private static class ElectionBuilder implements ElectionSink {
+        private Election election;
+
+        @Override
+        public void begin(int numCandidates) {
+            election = new Election(numCandidates);
+        }
+
+        @Override
+        public void addCandidate(String name) {
+            election.addCandidate(name);
+        }
+
+        @Override
+        public void addBallot(int[] ranks, int numRanks) {
+            election.addBallot(ranks, numRanks);
+        }
+    }
+
+    private ElectionLoader(FileChannel channel, long windowSize) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        map(0);
+    }
+
+    /**
+     * Parses the whole file.
+     * @param sink receives the contents of the file
+     */
+    private void read(ElectionSink sink) throws IOException, ElectionFormatException {
+        // Read in # of candidates
+        int numCandidates = readCandidateCount();
+        sink.begin(numCandidates);
+
+        // Read in the candidates
+        for (int i = 0; i < numCandidates; i++) {
+            if (!nextLine()) {
+                throw new ElectionFormatException("The file ended after " + i
+                        + " of " + numCandidates + " candidates.");
+            }
+            sink.addCandidate(lineText());
+        }
+
+        // Read in the ballots and assign to the candidates.  A blank line
+        // ends the ballots.
+        while (nextLine() && lineEnd > lineStart) {
+            int numRanks = parseBallot();
+            try {
+                sink.addBallot(ranks, numRanks);
+            } catch (InvalidBallotException e) {
+                throw new ElectionFormatException("Invalid ballot on line "
+                        + lineNumber + " (" + e.getReason().getDescription()
+                        + ": " + e.getValue() + "): " + lineText());
+            }
+        }
+    }
+
+    /**
+     * Reads the number at the start of the file.  Like Scanner.nextInt,
+     * leading blank lines are skipped and anything following the number on
+     * its line is ignored.
+     * @return the number of candidates
+     * @throws ElectionFormatException if there is no number, or it is more
+     * than BallotStore.MAX_CANDIDATES
+     */
+    private int readCandidateCount() throws IOException, ElectionFormatException {
+        while (nextLine()) {
+            int i = skipBlanks(lineStart);
+            if (i == lineEnd) {
+                continue;
+            }
+            int value = 0;
+            int digits = 0;
+            byte b;
+            while (i < lineEnd && (b = buffer.get(i)) >= '0' && b <= '9'
+                    && value <= MAX_PARSEABLE) {
+                value = value * 10 + (b - '0');
+                digits++;
+                i++;
+            }
+            if (digits > 0 && (i == lineEnd || isBlank(buffer.get(i)))) {
+                if (value > BallotStore.MAX_CANDIDATES) {
+                    throw new ElectionFormatException("Too many candidates on line "
+                            + lineNumber + ": " + value + " (at most "
+                            + BallotStore.MAX_CANDIDATES + ").");
+                }
+                return value;
+            }
+            break;
+        }
+        throw new ElectionFormatException(
+                "The file should start with the number of candidates.");
+    }
+
+    /**
+     * Parses the current line as a ballot into the ranks array.
+     * @return the number of ranks on the line
+     * @throws ElectionFormatException if the line contains anything other
+     * than numbers separated by blanks
+     */
+    private int parseBallot() throws ElectionFormatException {
+        int count = 0;
+        int i = skipBlanks(lineStart);
+        while (i < lineEnd) {
+            int value = 0;
+            int digits = 0;
+            byte b;
+            while (i < lineEnd && (b = buffer.get(i)) >= '0' && b <= '9') {
+                if (value > MAX_PARSEABLE) {
+                    throw ballotParseError();
+                }
+                value = value * 10 + (b - '0');
+                digits++;
+                i++;
+            }
+            if (digits == 0 || (i < lineEnd && !isBlank(buffer.get(i)))) {
+                throw ballotParseError();
+            }
+            if (count == ranks.length) {
+                ranks = Arrays.copyOf(ranks, count * 2);
+            }
+            ranks[count++] = value;
+            i = skipBlanks(i);
+        }
+        return count;
+    }
+
+    private ElectionFormatException ballotParseError() {
+        return new ElectionFormatException("Could not parse a ballot on line "
+                + lineNumber + ": " + lineText());
+    }
+
+    /**
+     * Advances to the next line of the file, mapping the next window if the
+     * line runs past the end of the current one.
+     * @return false if there are no more lines
+     */
+    private boolean nextLine() throws IOException, ElectionFormatException {
+        if (bufferStart + pos >= fileSize) {
+            return false;
+        }
+        while (true) {
+            int limit = buffer.limit();
+            int i = pos;
+            while (i < limit && buffer.get(i) != '\n') {
+                i++;
+            }
+            if (i < limit || bufferStart + limit == fileSize) {
+                lineStart = pos;
+                lineEnd = i;
+                if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                pos = Math.min(i + 1, limit);
+                lineNumber++;
+                return true;
+            }
+            if (pos == 0) {
+                throw new ElectionFormatException("Line " + (lineNumber + 1)
+                        + " is too long.");
+            }
+            map(bufferStart + pos);
+        }
+    }
+
+    /**
+     * Maps the window of the file that starts at the given offset.
+     * @param start the file offset of the start of the window
+     */
+    private void map(long start) throws IOException {
+        long size = Math.min(windowSize, fileSize - start);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        bufferStart = start;
+        pos = 0;
+    }
+
+    private int skipBlanks(int i) {
+        while (i < lineEnd && isBlank(buffer.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    /**
+     * @return the current line decoded as UTF-8
+     */
+    private String lineText() {
+        byte[] bytes = new byte[lineEnd - lineStart];
+        ByteBuffer line = buffer.duplicate();
+        line.position(lineStart);
+        line.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,31 @@
+import java.io.IOException;
+
+/**
+ * An ElectionSink receives the contents of an election file as it is read:
+ * first the number of candidates, then each candidate's name, then each
+ * ballot.  ElectionLoader uses it to build an Election, or to pass the
+ * election on to something else, such as a converter, without holding every
+ * ballot in memory.
+ */
+public interface ElectionSink {
+    /**
+     * Called once, before any other method.
+     * @param numCandidates the number of candidates in the election
+     */
+    void begin(int numCandidates) throws IOException;
+
+    /**
+     * Called once for each candidate, in ballot order.
+     * @param name the candidate's name
+     */
+    void addCandidate(String name) throws IOException;
+
+    /**
+     * Called once for each ballot, after all the candidates.
+     * @param ranks the rank of each candidate, in the format accepted by
+     * Election.addBallot.  The array is reused for the next ballot.
+     * @param numRanks the number of ranks on the ballot
+     * @throws InvalidBallotException if the ballot is not valid
+     */
+    void addBallot(int[] ranks, int numRanks) throws IOException;
+}
@@ -0,0 +1,11 @@
+/**
+ * An EliminateAllTiedTieBreak eliminates every candidate tied for the 
+ * fewest votes in the same round.
+ */
+public class EliminateAllTiedTieBreak implements TieBreakStrategy {
+
+    @Override
+    public int[] choose(int[] tied, int round, TallyHistory history) {
+        return tied.clone();
+    }
+}
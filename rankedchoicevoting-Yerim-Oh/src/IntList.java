@@ -0,0 +1,72 @@
+import java.util.Arrays;
+
+/**
+ * An IntList is a growable list of primitive ints.  It is used instead of a
+ * List&lt;Integer&gt; where millions of entries would otherwise each need a
+ * boxed Integer.
+ */
+public class IntList {
+    // The list elements.  Only the first size entries are in use.
+    private int[] elements;
+    private int size;
+
+    /**
+     * Create an empty list
+     */
+    public IntList() {
+        this(8);
+    }
+
+    /**
+     * Create an empty list
+     * @param capacity the number of elements the list can hold before it
+     * needs to grow
+     */
+    public IntList(int capacity) {
+        elements = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Add a value to the end of the list.
+     * @param value the value to add
+     */
+    public void add(int value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = value;
+    }
+
+    /**
+     * @param index the position of the element
+     * @return the element at the position
+     */
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index
+                    + " out of bounds for length " + size);
+        }
+        return elements[index];
+    }
+
+    /**
+     * Remove all elements from the list, keeping its capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return a new array holding the elements of the list
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * @return the number of elements in the list
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Thrown when a ballot added to an election does not rank the candidates
+ * 1 to k, where k is at most the number of candidates.  The reason tells the
+ * caller what was wrong without having to parse the message.
+ */
+public class InvalidBallotException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The ways in which a ballot can be invalid.
+     */
+    public enum Reason {
+        /** The ballot does not have one rank per candidate. */
+        WRONG_LENGTH("wrong number of ranks"),
+        /** The same rank appears more than once. */
+        DUPLICATE_RANK("duplicate rank"),
+        /** A rank is negative or greater than the number of candidates. */
+        RANK_OUT_OF_RANGE("rank out of range"),
+        /** A rank is missing, although a later rank is used. */
+        SKIPPED_RANK("skipped rank"),
+        /** A ballot in preference order ranks a candidate id that does not 
+         * exist. */
+        CANDIDATE_OUT_OF_RANGE("candidate out of range"),
+        /** A ballot in preference order ranks the same candidate twice. */
+        DUPLICATE_CANDIDATE("duplicate candidate");
+
+        private final String description;
+
+        Reason(String description) {
+            this.description = description;
+        }
+
+        /**
+         * @return a short description of the problem, suitable for messages
+         */
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final Reason reason;
+    private final int value;
+
+    /**
+     * Create a new exception
+     * @param reason why the ballot was rejected
+     * @param value the offending value: the number of ranks for 
+     * WRONG_LENGTH, the candidate id for CANDIDATE_OUT_OF_RANGE and 
+     * DUPLICATE_CANDIDATE, otherwise the rank that was duplicated, out of 
+     * range or skipped
+     */
+    public InvalidBallotException(Reason reason, int value) {
+        super("Invalid ballot (" + reason.getDescription() + ": " + value + ")");
+        this.reason = reason;
+        this.value = value;
+    }
+
+    /**
+     * @return why the ballot was rejected
+     */
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * @return the number of ranks for WRONG_LENGTH, the candidate id for 
+     * CANDIDATE_OUT_OF_RANGE and DUPLICATE_CANDIDATE, otherwise the rank that
+     * was duplicated, out of range or skipped
+     */
+    public int getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,199 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A LiveElection counts ballots as they are reported, for election night
+ * results.  Ballots can be added from several threads at once, such as one
+ * per reporting precinct, and the first preference count of every candidate
+ * is kept up to date as they arrive.  At any time, a provisional ranked
+ * choice result can be found from the ballots reported so far, without
+ * reading any of them again.
+ *
+ * The first preference counts are LongAdders, so threads adding ballots do
+ * not contend on a shared counter.  New ballots are kept in several
+ * stripes, each a BallotStore with its own lock.  Each thread is given a
+ * stripe the first time it adds a ballot, so threads only wait for each
+ * other when more threads than stripes are adding ballots.
+ *
+ * Every ballot is folded once into a running tally, a BallotStore that
+ * aggregates identical ballots.  A provisional result swaps each stripe's
+ * store for an empty one, holding the stripe's lock only for the swap, and
+ * folds in just the ballots reported since the last result.  The tally's
+ * ballot groups are then shared with a new Election, which only copies
+ * their weights, and tabulated while ballots keep arriving.
+ *
+ * The candidates must all be added before the first ballot.
+ */
+public class LiveElection {
+    // The candidates' names, in ballot order.
+    private final String[] names;
+
+    // The next slot in the names array to fill.
+    private int nextCandidate;
+
+    // The number of first preference votes for each candidate.
+    private final LongAdder[] firstPreferences;
+
+    // The number of ballots that ranked no candidates.
+    private final LongAdder exhausted = new LongAdder();
+
+    // The ballots reported since the last provisional result.  Each stripe
+    // is locked while it is used.
+    private final Stripe[] stripes;
+
+    // Hands out stripes to threads in turn.
+    private final AtomicInteger nextStripe = new AtomicInteger();
+
+    // The stripe used by each thread that adds ballots.
+    private final ThreadLocal<Stripe> stripe;
+
+    // Every ballot taken from the stripes so far.  Locked while ballots are
+    // folded in.
+    private final BallotStore tally;
+
+    // Checks incoming ballots, one per thread.
+    private final ThreadLocal<BallotValidator> validators;
+
+    /**
+     * Create a live election with one stripe for each available processor.
+     * @param numCandidates the number of candidates in the election
+     */
+    public LiveElection(int numCandidates) {
+        this(numCandidates, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a live election.
+     * @param numCandidates the number of candidates in the election
+     * @param numStripes the number of ballot stores.  Up to this many
+     * threads can add ballots without waiting for each other.
+     */
+    public LiveElection(int numCandidates, int numStripes) {
+        if (numStripes < 1) {
+            throw new IllegalArgumentException("There must be at least 1 stripe");
+        }
+        this.names = new String[numCandidates];
+        this.firstPreferences = new LongAdder[numCandidates];
+        for (int c = 0; c < numCandidates; c++) {
+            firstPreferences[c] = new LongAdder();
+        }
+        this.stripes = new Stripe[numStripes];
+        for (int s = 0; s < numStripes; s++) {
+            stripes[s] = new Stripe(numCandidates);
+        }
+        this.tally = new BallotStore(numCandidates);
+        this.stripe = ThreadLocal.withInitial(() ->
+                stripes[Math.floorMod(nextStripe.getAndIncrement(), numStripes)]);
+        this.validators =
+                ThreadLocal.withInitial(() -> new BallotValidator(numCandidates));
+    }
+
+    /**
+     * The ballots one or more threads have reported since they were last
+     * folded into the tally.
+     */
+    private static class Stripe {
+        // Replaced by an empty store when the ballots are taken.
+        BallotStore ballots;
+
+        Stripe(int numCandidates) {
+            this.ballots = new BallotStore(numCandidates);
+        }
+    }
+
+    /**
+     * Adds a candidate to the election.  This is not thread safe, and must
+     * happen before any ballots are added.
+     * @param name the candidate's name
+     */
+    public void addCandidate (String name) {
+        names[nextCandidate] = name;
+        nextCandidate++;
+    }
+
+    /**
+     * Adds a completed ballot to the election.  This may be called from
+     * several threads at once.
+     * @param ranks the rank of each candidate, as for Election.addBallot.
+     * The array is not retained.
+     * @throws InvalidBallotException if the ballot is not valid.
+     */
+    public void addBallot (int[] ranks) {
+        validators.get().check(ranks, ranks.length);
+        int firstChoice = -1;
+        for (int c = 0; c < ranks.length; c++) {
+            if (ranks[c] == 1) {
+                firstChoice = c;
+                break;
+            }
+        }
+        Stripe reported = stripe.get();
+        synchronized (reported) {
+            reported.ballots.add(ranks);
+        }
+        if (firstChoice >= 0) {
+            firstPreferences[firstChoice].increment();
+        }
+        else {
+            exhausted.increment();
+        }
+    }
+
+    /**
+     * @param candidate the index of a candidate
+     * @return the number of ballots reported so far that rank the candidate
+     * first.  While ballots are being added, the counts of different
+     * candidates may have been read at slightly different moments.
+     */
+    public long getFirstPreferences (int candidate) {
+        return firstPreferences[candidate].sum();
+    }
+
+    /**
+     * @return the number of ballots reported so far
+     */
+    public long getBallotCount () {
+        long count = exhausted.sum();
+        for (LongAdder votes : firstPreferences) {
+            count += votes.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Creates an Election holding the ballots reported so far.  Only the
+     * ballots reported since the last snapshot are read, and each stripe is
+     * locked only while its store is swapped for an empty one.  The election
+     * can be configured and tabulated like any other, but no ballots can be
+     * added to it.
+     * @return a new election with every candidate and every ballot that had
+     * been added when its stripe was taken
+     */
+    public Election snapshot () {
+        synchronized (tally) {
+            for (Stripe reported : stripes) {
+                BallotStore taken;
+                synchronized (reported) {
+                    taken = reported.ballots;
+                    reported.ballots = new BallotStore(names.length);
+                }
+                tally.addAll(taken);
+            }
+            int[] weights = Arrays.copyOf(tally.getWeightArray(), tally.size());
+            return new Election(names, 
+                                tally.withWeights(weights, tally.getBallotCount()));
+        }
+    }
+
+    /**
+     * Apply the ranked choice voting algorithm to the ballots reported so
+     * far.
+     * @return the provisional winner, or the tied candidates, as for
+     * Election.selectWinner
+     */
+    public List<String> selectProvisionalWinner () {
+        return snapshot().selectWinner();
+    }
+}
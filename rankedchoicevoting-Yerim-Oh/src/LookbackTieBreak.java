@@ -0,0 +1,38 @@
+/**
+ * A LookbackTieBreak breaks a tie by looking back at earlier rounds.  Going
+ * back one round at a time, only the tied candidates who had the fewest 
+ * votes in that round are kept, until a single candidate is left, and that
+ * candidate is eliminated.  If the candidates are still tied in the first
+ * round, the one listed first on the ballot is eliminated.
+ *
+ * Each tie costs O(rounds * tied candidates), reading the tallies that the
+ * election has already recorded, rather than counting the ballots again.
+ */
+public class LookbackTieBreak implements TieBreakStrategy {
+
+    @Override
+    public int[] choose(int[] tied, int round, TallyHistory history) {
+        int[] candidates = tied.clone();
+        int numCandidates = candidates.length;
+        for (int earlier = history.getRoundCount() - 1; 
+                earlier >= 0 && numCandidates > 1; earlier--) {
+            int fewest = Integer.MAX_VALUE;
+            for (int i = 0; i < numCandidates; i++) {
+                fewest = Math.min(fewest, history.getVotes(earlier, candidates[i]));
+            }
+            int kept = 0;
+            for (int i = 0; i < numCandidates; i++) {
+                if (history.getVotes(earlier, candidates[i]) == fewest) {
+                    candidates[kept++] = candidates[i];
+                }
+            }
+            numCandidates = kept;
+        }
+        return new int[] {candidates[0]};
+    }
+
+    @Override
+    public boolean needsHistory() {
+        return true;
+    }
+}
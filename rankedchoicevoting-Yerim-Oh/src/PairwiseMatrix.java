@@ -0,0 +1,336 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A PairwiseMatrix counts, for every pair of candidates A and B, how many
+ * ballots rank A above B.  A ballot ranks every candidate it names above
+ * every candidate it leaves out, and expresses no preference between two
+ * candidates it leaves out.  From the matrix come the usual Condorcet
+ * summaries: the Condorcet winner, who beats every other candidate head to
+ * head, if there is one, and the Smith set, the smallest group of
+ * candidates who each beat every candidate outside the group.
+ *
+ * The matrix is counted from the ballot groups of an election, each once
+ * with its weight.  For each group, the position of every candidate on the
+ * ballot is written to a scratch array, with unranked candidates at the
+ * end, and then the row of each ranked candidate is updated by one pass
+ * over all the candidates that adds the weight where the row's candidate
+ * comes first.  The pass has no branches and reads the row and the scratch
+ * array at the same index, so the JIT can compile it to vector
+ * instructions.  Each row is a separate array for the same reason: a row
+ * starting at an arbitrary offset in one large array defeats the JIT's
+ * vectorizer.  The groups are split into ranges counted in
+ * parallel on a fork/join pool, each into its own matrix, and the matrices
+ * are added together as the ranges are joined.
+ *
+ * The matrix holds n * n ints for n candidates, and each parallel task has
+ * its own copy while it counts.
+ */
+public class PairwiseMatrix {
+    // The smallest range of ballot groups worth counting as a separate
+    // task, and the number of tasks per thread.
+    private static final int MIN_TASK_GROUPS = 4096;
+    private static final int TASKS_PER_THREAD = 4;
+
+    // The candidates' names, in ballot order.
+    private final String[] candidateNames;
+    private final int numCandidates;
+
+    // counts[a][b] is the number of ballots that rank candidate a above
+    // candidate b.
+    private final int[][] counts;
+
+    // The ballots, read from the election's store.
+    private final short[] preferences;
+    private final int[] offsets;
+    private final int[] weights;
+
+    /**
+     * Counts the pairwise preferences of an election.  No more ballots can
+     * be added to the election afterwards.
+     * @param election the election, with all of its candidates and ballots
+     * @param parallelism the number of threads to count on
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public PairwiseMatrix(Election election, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        BallotStore ballots = election.getBallots();
+        this.candidateNames = election.getCandidateNames();
+        this.numCandidates = candidateNames.length;
+        this.preferences = ballots.getPreferenceArray();
+        this.offsets = ballots.getOffsetArray();
+        this.weights = ballots.getWeightArray();
+
+        int numGroups = ballots.size();
+        if (parallelism == 1 || numGroups < 2 * MIN_TASK_GROUPS) {
+            counts = countRange(0, numGroups);
+        }
+        else {
+            int taskGroups = Math.max(MIN_TASK_GROUPS,
+                    numGroups / (parallelism * TASKS_PER_THREAD));
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                counts = pool.invoke(new CountTask(0, numGroups, taskGroups));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Counts a range of ballot groups into a new matrix.
+     * @param from the first group
+     * @param to one past the last group
+     * @return the counts for the range
+     */
+    private int[][] countRange(int from, int to) {
+        int n = numCandidates;
+        int[][] matrix = new int[n][n];
+        // The position of each candidate on the current ballot, or n if the
+        // ballot does not rank them.
+        int[] position = new int[n];
+        Arrays.fill(position, n);
+        for (int b = from; b < to; b++) {
+            int start = offsets[b];
+            int end = offsets[b + 1];
+            int weight = weights[b];
+            for (int p = start; p < end; p++) {
+                position[preferences[p]] = p - start;
+            }
+            for (int p = start; p < end; p++) {
+                int[] row = matrix[preferences[p]];
+                int rank = p - start;
+                for (int c = 0; c < row.length; c++) {
+                    // The difference is negative exactly when this candidate
+                    // is ranked above candidate c.
+                    row[c] += (rank - position[c]) >> 31 & weight;
+                }
+            }
+            for (int p = start; p < end; p++) {
+                position[preferences[p]] = n;
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Counts a range of ballot groups by splitting it in half until each
+     * task has at most the given number of groups, and adds the halves'
+     * matrices together.
+     */
+    private class CountTask extends RecursiveTask<int[][]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int taskGroups;
+
+        CountTask(int from, int to, int taskGroups) {
+            this.from = from;
+            this.to = to;
+            this.taskGroups = taskGroups;
+        }
+
+        @Override
+        protected int[][] compute() {
+            if (to - from <= taskGroups) {
+                return countRange(from, to);
+            }
+            int mid = (from + to) >>> 1;
+            CountTask right = new CountTask(mid, to, taskGroups);
+            right.fork();
+            int[][] matrix = new CountTask(from, mid, taskGroups).compute();
+            int[][] other = right.join();
+            for (int a = 0; a < matrix.length; a++) {
+                int[] row = matrix[a];
+                int[] otherRow = other[a];
+                for (int b = 0; b < row.length; b++) {
+                    row[b] += otherRow[b];
+                }
+            }
+            return matrix;
+        }
+    }
+
+    /**
+     * @return the number of candidates
+     */
+    public int getCandidateCount() {
+        return numCandidates;
+    }
+
+    /**
+     * @param candidate the index of a candidate
+     * @return the candidate's name
+     */
+    public String getCandidateName(int candidate) {
+        return candidateNames[candidate];
+    }
+
+    /**
+     * @param a the index of a candidate
+     * @param b the index of another candidate
+     * @return the number of ballots that rank a above b
+     */
+    public int getPreferring(int a, int b) {
+        return counts[a][b];
+    }
+
+    /**
+     * @param a the index of a candidate
+     * @param b the index of another candidate
+     * @return true if more ballots rank a above b than b above a
+     */
+    public boolean beats(int a, int b) {
+        return getPreferring(a, b) > getPreferring(b, a);
+    }
+
+    /**
+     * @return the name of the candidate who beats every other candidate, or
+     * null if there is no such candidate
+     */
+    public String getCondorcetWinner() {
+        List<String> smithSet = getSmithSet();
+        return smithSet.size() == 1 ? smithSet.get(0) : null;
+    }
+
+    /**
+     * Finds the Smith set.  Every candidate in the Smith set beats every
+     * candidate outside it, so has more pairwise wins, counting a tie as
+     * half a win, than any candidate outside it.  The set is therefore the
+     * shortest run of candidates, taken in order of wins, that beat all of
+     * the rest.
+     * @return the names of the candidates in the Smith set, in ballot order.
+     * It is empty only if there are no candidates.
+     */
+    public List<String> getSmithSet() {
+        int n = numCandidates;
+        // Sort by twice the wins, highest first, then by ballot position.
+        long[] order = new long[n];
+        for (int a = 0; a < n; a++) {
+            int score = 0;
+            for (int b = 0; b < n; b++) {
+                if (b != a) {
+                    int margin = getPreferring(a, b) - getPreferring(b, a);
+                    score += Integer.signum(margin) + 1;
+                }
+            }
+            order[a] = ((long) -score << 32) | a;
+        }
+        Arrays.sort(order);
+
+        int size = 1;
+        while (size < n && !beatsAllOthers(order, size)) {
+            size++;
+        }
+        boolean[] inSet = new boolean[n];
+        for (int i = 0; i < size && i < n; i++) {
+            inSet[(int) order[i]] = true;
+        }
+        List<String> smithSet = new ArrayList<>();
+        for (int c = 0; c < n; c++) {
+            if (inSet[c]) {
+                smithSet.add(candidateNames[c]);
+            }
+        }
+        return smithSet;
+    }
+
+    /**
+     * @param order the candidates in order of wins, in the low 32 bits
+     * @param size the number of leading candidates in the group
+     * @return true if each of the leading candidates beats every other
+     */
+    private boolean beatsAllOthers(long[] order, int size) {
+        for (int i = 0; i < size; i++) {
+            for (int j = size; j < order.length; j++) {
+                if (!beats((int) order[i], (int) order[j])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the matrix as a table, with a row for each candidate giving
+     * the number of ballots that rank them above each column's candidate,
+     * followed by the Condorcet winner and the Smith set
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-24s", ""));
+        for (int b = 0; b < numCandidates; b++) {
+            report.append(String.format(" %10d", b + 1));
+        }
+        report.append(String.format("%n"));
+        for (int a = 0; a < numCandidates; a++) {
+            report.append(String.format("%-24s", (a + 1) + " " + candidateNames[a]));
+            for (int b = 0; b < numCandidates; b++) {
+                if (a == b) {
+                    report.append(String.format(" %10s", "-"));
+                }
+                else {
+                    report.append(String.format(" %10d", getPreferring(a, b)));
+                }
+            }
+            report.append(String.format("%n"));
+        }
+        String winner = getCondorcetWinner();
+        report.append(String.format("Condorcet winner: %s%n",
+                                    winner == null ? "none" : winner));
+        report.append(String.format("Smith set: %s%n",
+                                    String.join(", ", getSmithSet())));
+        return report.toString();
+    }
+
+    /**
+     * Counts the pairwise preferences in an election file and prints the
+     * matrix, the Condorcet winner and the Smith set.
+     * @param args the election file, then optionally the number of threads
+     * (default: one per processor)
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java PairwiseMatrix election-file [threads]");
+            return;
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length > 1) {
+            try {
+                threads = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                threads = 0;
+            }
+            if (threads < 1) {
+                System.out.println ("The number of threads should be a " +
+                                    "positive number.");
+                return;
+            }
+        }
+        try {
+            Path file = Paths.get(args[0]);
+            Election election = BinaryElectionFormat.isBinaryElectionFile(file)
+                    ? BinaryElectionLoader.load(file) : ElectionLoader.load(file);
+            long start = System.nanoTime();
+            PairwiseMatrix matrix = new PairwiseMatrix(election, threads);
+            long elapsed = System.nanoTime() - start;
+            System.out.print(matrix);
+            System.out.printf("Counted in %.1f ms%n", elapsed / 1e6);
+        } catch (ElectionFormatException e) {
+            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            System.out.println("Could not read election file " + args[0]
+                               + ": " + e.getMessage());
+        }
+    }
+}
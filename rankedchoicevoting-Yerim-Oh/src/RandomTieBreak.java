@@ -0,0 +1,37 @@
+import java.util.SplittableRandom;
+
+/**
+ * A RandomTieBreak eliminates one of the tied candidates at random, like
+ * drawing lots.  Each draw is seeded from the strategy's seed, the round and
+ * the tied candidates, so a tabulation can be repeated exactly by using the
+ * same seed.  The strategy keeps no state between draws, so every
+ * tabulation of an election makes the same draws, even when several run at
+ * once or one is resumed from a checkpoint.
+ */
+public class RandomTieBreak implements TieBreakStrategy {
+    // Multiplies each part of a draw's seed in, so that different rounds
+    // and tied candidates give different seeds.
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long seed;
+
+    /**
+     * Create a strategy.
+     * @param seed the seed of the random draws
+     */
+    public RandomTieBreak(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public int[] choose(int[] tied, int round, TallyHistory history) {
+        long drawSeed = seed * GOLDEN_GAMMA + round;
+        for (int candidate : tied) {
+            drawSeed = drawSeed * GOLDEN_GAMMA + candidate;
+        }
+        // SplittableRandom mixes its seed well, so that nearby seeds do not
+        // start with the same draws as they can with Random.
+        SplittableRandom random = new SplittableRandom(drawSeed);
+        return new int[] {tied[random.nextInt(tied.length)]};
+    }
+}
@@ -1,8 +1,9 @@
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.InputMismatchException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
-import java.util.Scanner;
 
 /**
  * The ranked choice voting program implements the ranked choice voting 
@@ -21,8 +22,15 @@ import java.util.Scanner;
  * on the ballot is the rank of the first candidate, the second number on the
  * ballot is the rank of the second candidate, etc.  A correctly formulated 
  * ballot line will have n integers, where n is the number of candidates.
- * Those integers will a permutation of the numbers 1 to n.  There can be
+ * Those integers will a permutation of the numbers 1 to n.  A voter who 
+ * ranked only k candidates has a 0 for each candidate they did not rank, and
+ * the other integers are a permutation of the numbers 1 to k.  There can be
  * any number of ballots in the file. 
+ * 
+ * The election file can also be a binary file created by 
+ * ElectionFileConverter, which is described in BinaryElectionFormat, or a
+ * checkpoint file saved by an earlier run that was interrupted, in which
+ * case the tabulation continues where it stopped.
  */
 public class RankedChoiceVoting {
     /**
@@ -30,8 +38,10 @@ public class RankedChoiceVoting {
      * algorithm and reports the result on standard output.  If there is a
      * winner, that winner is announced.  If there is a tie, it announces
      * who is tied.
-     * @param args There should be one argument, which is the name of the file 
-     * containing the election data.
+     * @param args The first argument is the name of the file containing the
+     * election data.  An optional second argument gives the number of 
+     * threads used to tabulate the ballots, and an optional third argument
+     * names a file to save a checkpoint to after every round.
      */
     public static void main(String[] args) {
         if (args.length == 0) {
@@ -42,13 +52,26 @@ public class RankedChoiceVoting {
         }
         
         Election election = initializeElection(args[0]);
+        if (election != null && args.length > 1) {
+            try {
+                election.setParallelism(Integer.parseInt(args[1]));
+            } catch (IllegalArgumentException e) {
+                System.out.println ("The number of threads should be a " +
+                                    "positive number.");
+                return;
+            }
+        }
+        if (election != null && args.length > 2) {
+            election.setCheckpoint(Paths.get(args[2]));
+        }
         if (election != null) {
             announceWinner(election);
         }
     }
     
     /**
-     * Creates an election and initializes it based on the data in the election file.
+     * Creates an election and initializes it based on the data in the election file,
+     * which may be a text or a binary election file, or a checkpoint file.
      * If the file does not exist, is not correctly formatted, or any ballot is
      * incorrectly formatted, an error message is displayed and the election is not 
      * created.
@@ -57,47 +80,24 @@ public class RankedChoiceVoting {
      * while reading the election data.
      */
     private static Election initializeElection(String filename) {
-        String ballotLine = "";
-        Election election = null;
         try {
-            Scanner in = new Scanner (new File (filename));
-            
-            // Read in # of candidates
-            int numCandidates = in.nextInt();
-            in.nextLine();
-            election = new Election (numCandidates);
-            
-            // Read in the candidates
-            for (int i = 0; i < numCandidates; i++) {
-                String name = in.nextLine();
-                election.addCandidate(name);
+            Path file = Paths.get(filename);
+            if (BinaryElectionFormat.isBinaryElectionFile(file)) {
+                return BinaryElectionLoader.load(file);
             }
-            
-            // Read in the ballots and assign to the candidates
-            while (in.hasNext()) {
-                ballotLine = in.nextLine();
-                if (ballotLine.equals("")) {
-                    break;
-                }
-                String[] rankStrings = ballotLine.split(" ");
-                int[] ranks = new int[rankStrings.length];
-                for (int i =0; i < rankStrings.length; i++) {
-                    ranks[i] = Integer.parseInt(rankStrings[i]);
-                }
-                election.addBallot(ranks);
+            if (ElectionCheckpoint.isCheckpointFile(file)) {
+                return ElectionCheckpoint.resume(file);
             }
-            in.close();
-            
-        } catch (InputMismatchException e) {
-            System.out.println("The file should start with the number of candidates.");
-        } catch (NumberFormatException e) {
-            System.out.println ("Could not parse a ballot: " + ballotLine);
-            election = null;
-        } catch (FileNotFoundException e) {
+            return ElectionLoader.load(file);
+        } catch (NoSuchFileException e) {
             System.out.println ("Election file " + filename + " was not found.");
+        } catch (ElectionFormatException e) {
+            System.out.println (e.getMessage());
+        } catch (IOException e) {
+            System.out.println ("Could not read election file " + filename
+                                + ": " + e.getMessage());
         }
-        
-        return election;
+        return null;
     }
 
     /**
@@ -106,7 +106,19 @@ public class RankedChoiceVoting {
      * @param election an initialized election object
      */
     private static void announceWinner(Election election) {
-        List<String> winners = election.selectWinner();
+        election.addRoundListener(report -> {
+            for (int i = 0; i < report.getEliminatedCount(); i++) {
+                System.out.println ("Eliminating " + report.getEliminatedName(i));
+            }
+        });
+        List<String> winners;
+        try {
+            winners = election.selectWinner();
+        } catch (UncheckedIOException e) {
+            System.out.println ("Could not save a checkpoint: " 
+                                + e.getCause().getMessage());
+            return;
+        }
         if (winners.size() == 1) {
             System.out.println ("Winner is " + winners.get(0));
         }
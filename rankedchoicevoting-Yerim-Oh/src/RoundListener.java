@@ -0,0 +1,13 @@
+/**
+ * A RoundListener is told about each round of an election as 
+ * Election.selectWinner tabulates it.  Listeners are called on the thread
+ * that runs selectWinner, after the round's ballots have been moved.
+ */
+public interface RoundListener {
+    /**
+     * Called once for each round, including the final round in which a
+     * winner or a tie is found.
+     * @param report what happened in the round
+     */
+    void roundCompleted(RoundReport report);
+}
@@ -0,0 +1,155 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A RoundRecorder is a RoundListener that keeps the report of every round, 
+ * and can export them as JSON or CSV for monitoring tools.
+ *
+ * The JSON export is an object with a "rounds" array holding one object per
+ * round.  Candidates appear in it as objects with their index and name, so
+ * that two candidates with the same name are kept apart.  The CSV export has
+ * a header line and then one line per candidate per round.
+ */
+public class RoundRecorder implements RoundListener {
+    private final List<RoundReport> reports = new ArrayList<>();
+
+    @Override
+    public void roundCompleted(RoundReport report) {
+        reports.add(report);
+    }
+
+    /**
+     * @return the reports recorded so far, in round order
+     */
+    public List<RoundReport> getReports() {
+        return Collections.unmodifiableList(reports);
+    }
+
+    /**
+     * Writes the recorded rounds as JSON.
+     * @param out where to write the JSON
+     * @throws IOException if writing fails
+     */
+    public void writeJson(Appendable out) throws IOException {
+        out.append("{\"rounds\":[");
+        for (int r = 0; r < reports.size(); r++) {
+            RoundReport report = reports.get(r);
+            if (r > 0) {
+                out.append(',');
+            }
+            out.append("{\"round\":").append(Integer.toString(report.getRound()));
+            out.append(",\"continuing\":")
+               .append(Integer.toString(report.getContinuingBallots()));
+            out.append(",\"votes\":[");
+            for (int c = 0; c < report.getCandidateCount(); c++) {
+                if (c > 0) {
+                    out.append(',');
+                }
+                appendJsonCandidate(out, report, c);
+                out.append(",\"votes\":").append(Integer.toString(report.getVotes(c)));
+                out.append('}');
+            }
+            out.append("],\"eliminated\":[");
+            for (int i = 0; i < report.getEliminatedCount(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                appendJsonCandidate(out, report, report.getEliminated(i));
+                out.append('}');
+            }
+            out.append("],\"transferred\":[");
+            boolean first = true;
+            for (int c = 0; c < report.getCandidateCount(); c++) {
+                if (report.getTransferred(c) > 0) {
+                    if (!first) {
+                        out.append(',');
+                    }
+                    first = false;
+                    appendJsonCandidate(out, report, c);
+                    out.append(",\"votes\":")
+                       .append(Integer.toString(report.getTransferred(c)));
+                    out.append('}');
+                }
+            }
+            out.append("],\"exhausted\":")
+               .append(Integer.toString(report.getExhaustedBallots()));
+            out.append(",\"totalExhausted\":")
+               .append(Integer.toString(report.getTotalExhaustedBallots()));
+            out.append(",\"transferNanos\":")
+               .append(Long.toString(report.getTransferNanos()));
+            out.append(",\"roundNanos\":")
+               .append(Long.toString(report.getRoundNanos()));
+            out.append('}');
+        }
+        out.append("]}\n");
+    }
+
+    /**
+     * Writes the recorded rounds as CSV, with one line for each candidate in
+     * each round.  The round-level columns are repeated on each line.
+     * @param out where to write the CSV
+     * @throws IOException if writing fails
+     */
+    public void writeCsv(Appendable out) throws IOException {
+        out.append("round,candidate,votes,transferred,eliminated,exhausted,"
+                   + "total_exhausted,continuing,transfer_nanos,round_nanos\n");
+        for (RoundReport report : reports) {
+            for (int c = 0; c < report.getCandidateCount(); c++) {
+                out.append(Integer.toString(report.getRound())).append(',');
+                appendCsvField(out, report.getCandidateName(c));
+                out.append(',').append(Integer.toString(report.getVotes(c)));
+                out.append(',').append(Integer.toString(report.getTransferred(c)));
+                out.append(',').append(report.isEliminated(c) ? "true" : "false");
+                out.append(',').append(Integer.toString(report.getExhaustedBallots()));
+                out.append(',')
+                   .append(Integer.toString(report.getTotalExhaustedBallots()));
+                out.append(',')
+                   .append(Integer.toString(report.getContinuingBallots()));
+                out.append(',').append(Long.toString(report.getTransferNanos()));
+                out.append(',').append(Long.toString(report.getRoundNanos()));
+                out.append('\n');
+            }
+        }
+    }
+
+    /**
+     * Opens the JSON object for a candidate, leaving it for the caller to add
+     * more fields and close.
+     */
+    private static void appendJsonCandidate(Appendable out, RoundReport report,
+                                            int candidate) throws IOException {
+        out.append("{\"candidate\":").append(Integer.toString(candidate));
+        out.append(",\"name\":");
+        appendJsonString(out, report.getCandidateName(candidate));
+    }
+
+    private static void appendJsonString(Appendable out, String value)
+            throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                out.append('\\').append(ch);
+            }
+            else if (ch < 0x20) {
+                out.append(String.format("\\u%04x", (int) ch));
+            }
+            else {
+                out.append(ch);
+            }
+        }
+        out.append('"');
+    }
+
+    private static void appendCsvField(Appendable out, String value)
+            throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            out.append(value);
+            return;
+        }
+        out.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * A RoundReport describes one round of ranked choice tabulation: the vote
+ * count at the start of the round, which candidates were eliminated, where
+ * their ballots went, how many ballots were exhausted, and how 
+ * long the round took.
+ *
+ * Reports are only created when a RoundListener is registered with the 
+ * election.
+ */
+public class RoundReport {
+    private final int round;
+    private final String[] candidateNames;
+    private final int[] votes;
+    private final int continuing;
+    private final int[] eliminated;
+    private final int[] transferred;
+    private final int exhausted;
+    private final int totalExhausted;
+    private final long transferNanos;
+    private final long roundNanos;
+
+    /**
+     * Create a report.
+     * @param round the round number, starting at 1
+     * @param candidateNames the names of all candidates, in ballot order
+     * @param votes each candidate's votes at the start of the round
+     * @param continuing the number of ballots that were not exhausted at the
+     * start of the round
+     * @param eliminated the indexes of the candidates eliminated in this 
+     * round.  This is empty if the round found a winner or a tie, and has
+     * more than one candidate if defeated candidates were eliminated 
+     * together.
+     * @param transferred the number of ballots each candidate received from 
+     * the eliminated candidates
+     * @param exhausted the number of ballots exhausted in this round
+     * @param totalExhausted the number of ballots exhausted by the end of
+     * this round
+     * @param transferNanos the time taken to move the eliminated candidates'
+     * ballots
+     * @param roundNanos the time taken by the whole round
+     */
+    public RoundReport(int round, String[] candidateNames, int[] votes,
+                       int continuing, int[] eliminated, int[] transferred,
+                       int exhausted, int totalExhausted, long transferNanos,
+                       long roundNanos) {
+        this.round = round;
+        this.candidateNames = candidateNames;
+        this.votes = votes;
+        this.continuing = continuing;
+        this.eliminated = eliminated;
+        this.transferred = transferred;
+        this.exhausted = exhausted;
+        this.totalExhausted = totalExhausted;
+        this.transferNanos = transferNanos;
+        this.roundNanos = roundNanos;
+    }
+
+    /**
+     * @return the round number, starting at 1
+     */
+    public int getRound() {
+        return round;
+    }
+
+    /**
+     * @return the number of candidates in the election
+     */
+    public int getCandidateCount() {
+        return candidateNames.length;
+    }
+
+    /**
+     * @param candidate the index of a candidate
+     * @return the candidate's name
+     */
+    public String getCandidateName(int candidate) {
+        return candidateNames[candidate];
+    }
+
+    /**
+     * @param candidate the index of a candidate
+     * @return the candidate's votes at the start of the round.  Eliminated
+     * candidates have 0.
+     */
+    public int getVotes(int candidate) {
+        return votes[candidate];
+    }
+
+    /**
+     * @return the number of ballots that were not exhausted at the start of
+     * the round
+     */
+    public int getContinuingBallots() {
+        return continuing;
+    }
+
+    /**
+     * @return the number of candidates eliminated in this round
+     */
+    public int getEliminatedCount() {
+        return eliminated.length;
+    }
+
+    /**
+     * @param i which of this round's eliminated candidates, from 0 to
+     * getEliminatedCount() - 1, in the order they were eliminated
+     * @return the index of the eliminated candidate
+     */
+    public int getEliminated(int i) {
+        return eliminated[i];
+    }
+
+    /**
+     * @param i which of this round's eliminated candidates, from 0 to
+     * getEliminatedCount() - 1, in the order they were eliminated
+     * @return the name of the eliminated candidate
+     */
+    public String getEliminatedName(int i) {
+        return candidateNames[eliminated[i]];
+    }
+
+    /**
+     * @param candidate the index of a candidate
+     * @return true if the candidate was eliminated in this round
+     */
+    public boolean isEliminated(int candidate) {
+        for (int id : eliminated) {
+            if (id == candidate) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if this round found a winner or a tie
+     */
+    public boolean isFinalRound() {
+        return eliminated.length == 0;
+    }
+
+    /**
+     * @param candidate the index of a candidate
+     * @return the number of ballots the candidate received from the 
+     * candidates eliminated in this round
+     */
+    public int getTransferred(int candidate) {
+        return transferred[candidate];
+    }
+
+    /**
+     * @return the number of ballots exhausted in this round
+     */
+    public int getExhaustedBallots() {
+        return exhausted;
+    }
+
+    /**
+     * @return the number of ballots exhausted by the end of this round
+     */
+    public int getTotalExhaustedBallots() {
+        return totalExhausted;
+    }
+
+    /**
+     * @return the time in nanoseconds taken to move the eliminated 
+     * candidates' ballots
+     */
+    public long getTransferNanos() {
+        return transferNanos;
+    }
+
+    /**
+     * @return the time in nanoseconds taken by the whole round
+     */
+    public long getRoundNanos() {
+        return roundNanos;
+    }
+}
@@ -0,0 +1,209 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * A ShardedTabulation moves ballots between candidates on several threads.
+ * The ballots are split into contiguous shards, and each shard keeps its own
+ * list of ballots for each candidate and its own count of the ballots each
+ * candidate received.  The shards are processed in parallel on a fork/join
+ * pool, and their counts are merged after each step, so the totals are 
+ * exactly the same as if the ballots had been moved one at a time.
+ *
+ * Each ballot belongs to exactly one shard, so the shards never write to the
+ * same ballot cursor or list.
+ */
+public class ShardedTabulation {
+    // The number of shards per thread.  Using more shards than threads lets
+    // the pool balance the work when some shards move more ballots.
+    private static final int SHARDS_PER_THREAD = 4;
+
+    // The ballots being tabulated, and the position each has reached.
+    private final BallotStore ballots;
+    private final BallotCursors cursors;
+
+    // The candidates, which record whether they have been eliminated.
+    private final Candidate[] candidates;
+
+    private final ForkJoinPool pool;
+    private final Shard[] shards;
+
+    /**
+     * A contiguous range of ballot groups and the tabulation state for them.
+     */
+    private static class Shard {
+        // The first ballot in the shard and one past the last.
+        final int from;
+        final int to;
+
+        // The ballots in this shard for which each candidate is the top
+        // choice.
+        final IntList[] votes;
+
+        // The number of ballots each candidate received in the latest step.
+        final int[] received;
+
+        // The number of ballots exhausted in the latest step.
+        int exhausted;
+
+        Shard(int from, int to, int numCandidates) {
+            this.from = from;
+            this.to = to;
+            this.votes = new IntList[numCandidates];
+            for (int c = 0; c < numCandidates; c++) {
+                votes[c] = new IntList();
+            }
+            this.received = new int[numCandidates];
+        }
+    }
+
+    /**
+     * Create a tabulation over all the ballots in a store.  The tabulation
+     * owns a thread pool, so it must be closed when it is no longer needed.
+     * @param ballots the ballots to tabulate
+     * @param cursors the tabulation's cursors for the ballots
+     * @param candidates the candidates in the election
+     * @param parallelism the number of threads to use
+     */
+    public ShardedTabulation(BallotStore ballots, BallotCursors cursors,
+                             Candidate[] candidates, int parallelism) {
+        this.ballots = ballots;
+        this.cursors = cursors;
+        this.candidates = candidates;
+        this.pool = new ForkJoinPool(parallelism);
+
+        int numGroups = ballots.size();
+        int numShards = Math.max(1, Math.min(numGroups,
+                parallelism * SHARDS_PER_THREAD));
+        this.shards = new Shard[numShards];
+        for (int s = 0; s < numShards; s++) {
+            int from = (int) ((long) numGroups * s / numShards);
+            int to = (int) ((long) numGroups * (s + 1) / numShards);
+            shards[s] = new Shard(from, to, candidates.length);
+        }
+    }
+
+    /**
+     * Gives every ballot to its top choice among the candidates who have not
+     * been eliminated.
+     * @param voteCounts incremented by the number of ballots each candidate
+     * receives
+     * @return the number of ballots that did not rank any remaining 
+     * candidate
+     */
+    public int assignAll(int[] voteCounts) {
+        forEachShard(shard -> {
+            for (int b = shard.from; b < shard.to; b++) {
+                assign(shard, b);
+            }
+        });
+        return merge(voteCounts, null);
+    }
+
+    /**
+     * Gives each ballot held by an eliminated candidate to the next 
+     * preference on that ballot.  The candidate must already be marked as
+     * eliminated.
+     * @param eliminated the index of the eliminated candidate
+     * @param received for each candidate, incremented by the number of 
+     * ballots they receive
+     * @param receivers each candidate that receives at least one ballot is 
+     * added to this list once
+     * @return the number of ballots that were exhausted
+     */
+    public int transfer(int eliminated, int[] received, IntList receivers) {
+        forEachShard(shard -> {
+            IntList toMove = shard.votes[eliminated];
+            shard.votes[eliminated] = new IntList(0);
+            for (int i = 0; i < toMove.size(); i++) {
+                assign(shard, toMove.get(i));
+            }
+        });
+        return merge(received, receivers);
+    }
+
+    /**
+     * Shuts down the thread pool.
+     */
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Gives a ballot to its top remaining choice within a shard.
+     */
+    private void assign(Shard shard, int ballot) {
+        int candidate = cursors.getTopCandidate(ballot);
+        while (candidate >= 0 && candidates[candidate].isEliminated()) {
+            cursors.advance(ballot);
+            candidate = cursors.getTopCandidate(ballot);
+        }
+        if (candidate < 0) {
+            shard.exhausted += ballots.getWeight(ballot);
+        }
+        else {
+            shard.votes[candidate].add(ballot);
+            shard.received[candidate] += ballots.getWeight(ballot);
+        }
+    }
+
+    /**
+     * Adds the counts from every shard into a total and resets them.
+     * @return the total number of ballots exhausted
+     */
+    private int merge(int[] totals, IntList receivers) {
+        int exhausted = 0;
+        for (Shard shard : shards) {
+            exhausted += shard.exhausted;
+            shard.exhausted = 0;
+        }
+        for (int c = 0; c < totals.length; c++) {
+            int sum = 0;
+            for (Shard shard : shards) {
+                sum += shard.received[c];
+                shard.received[c] = 0;
+            }
+            if (sum > 0) {
+                if (receivers != null && totals[c] == 0) {
+                    receivers.add(c);
+                }
+                totals[c] += sum;
+            }
+        }
+        return exhausted;
+    }
+
+    private void forEachShard(Consumer<Shard> work) {
+        pool.invoke(new ShardTask(work, 0, shards.length));
+    }
+
+    /**
+     * Runs the work on a range of shards by splitting the range in half
+     * until each task has a single shard.
+     */
+    private class ShardTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Consumer<Shard> work;
+        private final int from;
+        private final int to;
+
+        ShardTask(Consumer<Shard> work, int from, int to) {
+            this.work = work;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                work.accept(shards[from]);
+            }
+            else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ShardTask(work, from, mid),
+                          new ShardTask(work, mid, to));
+            }
+        }
+    }
+}
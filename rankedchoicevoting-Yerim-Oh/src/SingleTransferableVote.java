@@ -0,0 +1,233 @@
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A SingleTransferableVote count fills several seats from the ballots of an
+ * election.  It uses the Droop quota and transfers surpluses by the Gregory
+ * method:
+ *
+ * 1. Each ballot starts with a value of one vote and counts for its first
+ * choice.  The quota is floor(valid ballots / (seats + 1)) + 1 votes, where
+ * a ballot is valid if it ranks at least one candidate.
+ * 2. Every candidate whose votes reach the quota is elected.  An elected
+ * candidate's surplus, the votes above the quota, is passed on: every ballot
+ * the candidate holds moves to its next continuing choice, and its value is
+ * multiplied by surplus / votes.  Surpluses are transferred one at a time,
+ * largest first, and may elect more candidates.
+ * 3. If no surplus is left to transfer, the candidate with the fewest votes
+ * is eliminated, and their ballots move to the next continuing choice at
+ * their current value.  Ties for the fewest votes eliminate the candidate
+ * listed first.
+ * 4. Steps 2 and 3 repeat until every seat is filled, or until the
+ * candidates left only just fill the remaining seats, in which case they are
+ * all elected.
+ *
+ * Ballot values are fixed-point numbers with nine decimal places, held in
+ * longs, so the count is exact and does not depend on floating point
+ * rounding.  When a value is multiplied by a transfer value the result is
+ * truncated, and the fraction of a vote that is lost is not counted for
+ * anyone.  All the ballots in a group share a value, so each transfer is a
+ * single weighted pass over the groups held by one candidate.
+ */
+public class SingleTransferableVote {
+    // The fixed-point value of one vote.
+    static final long ONE_VOTE = 1_000_000_000L;
+
+    // The ballots being counted, and the position each has reached.
+    private final BallotStore ballots;
+    private BallotCursors cursors;
+
+    // The candidates, which record whether they have been elected or
+    // eliminated.
+    private final Candidate[] candidates;
+
+    // The number of seats to fill.
+    private final int seats;
+
+    // The fixed-point value of each ballot in a group.
+    private long[] values;
+
+    // Each candidate's fixed-point votes.
+    private long[] votes;
+
+    /**
+     * Create a count over all the ballots in a store.
+     * @param ballots the ballots to count
+     * @param candidates the candidates in the election
+     * @param seats the number of seats to fill
+     */
+    public SingleTransferableVote(BallotStore ballots, Candidate[] candidates,
+                                  int seats) {
+        this.ballots = ballots;
+        this.candidates = candidates;
+        this.seats = seats;
+    }
+
+    /**
+     * Runs the count.  The candidates are updated as the count goes, so it
+     * can only be run once, but the ballots are only read.
+     * @return the names of the elected candidates, in the order they were
+     * elected.  There are fewer than seats names only if there are fewer
+     * candidates than seats.
+     */
+    public List<String> electWinners() {
+        cursors = new BallotCursors(ballots);
+        values = new long[ballots.size()];
+        votes = new long[candidates.length];
+        long validBallots = 0;
+        for (int b = 0; b < ballots.size(); b++) {
+            values[b] = ONE_VOTE;
+            if (assignBallotToCandidate(b) >= 0) {
+                validBallots += ballots.getWeight(b);
+            }
+        }
+        long quota = (validBallots / (seats + 1) + 1) * ONE_VOTE;
+
+        List<String> winners = new ArrayList<>();
+        int hopeful = candidates.length;
+
+        // The ballot groups of each elected candidate whose surplus has not
+        // been transferred yet.
+        IntList[] surplusBallots = new IntList[candidates.length];
+
+        while (winners.size() < seats && hopeful > 0) {
+            int next;
+            boolean electedAny = false;
+            while ((next = highestHopeful(quota)) >= 0) {
+                surplusBallots[next] = candidates[next].elect();
+                winners.add(candidates[next].getName());
+                hopeful--;
+                electedAny = true;
+            }
+            if (electedAny) {
+                continue;
+            }
+
+            if (hopeful <= seats - winners.size()) {
+                // Everyone left fills the remaining seats.
+                while ((next = highestHopeful(0)) >= 0) {
+                    candidates[next].elect();
+                    winners.add(candidates[next].getName());
+                }
+                break;
+            }
+
+            int transferring = largestSurplus(surplusBallots);
+            if (transferring >= 0) {
+                long surplus = votes[transferring] - quota;
+                if (surplus > 0) {
+                    long transferValue = BigInteger.valueOf(surplus)
+                            .multiply(BigInteger.valueOf(ONE_VOTE))
+                            .divide(BigInteger.valueOf(votes[transferring]))
+                            .longValue();
+                    transferBallots(surplusBallots[transferring], transferValue);
+                    votes[transferring] = quota;
+                }
+                surplusBallots[transferring] = null;
+            }
+            else {
+                int lowest = lowestHopeful();
+                transferBallots(candidates[lowest].eliminate(), ONE_VOTE);
+                votes[lowest] = 0;
+                hopeful--;
+            }
+        }
+        return winners;
+    }
+
+    /**
+     * Gives a ballot group to its top choice among the candidates who have
+     * been neither elected nor eliminated.
+     * @param ballot the index of a ballot group
+     * @return the candidate who was given the ballot, or -1 if the ballot is
+     * exhausted
+     */
+    private int assignBallotToCandidate(int ballot) {
+        while (true) {
+            int candidate = cursors.getTopCandidate(ballot);
+            if (candidate < 0) {
+                return candidate;
+            }
+            if (candidates[candidate].isEliminated()
+                    || candidates[candidate].isElected()) {
+                cursors.advance(ballot);
+            }
+            else {
+                candidates[candidate].addBallot(ballot, ballots.getWeight(ballot));
+                votes[candidate] += ballots.getWeight(ballot) * values[ballot];
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * Moves ballot groups to their next continuing choice.
+     * @param toTransfer the ballot groups to move
+     * @param transferValue the fixed-point factor to multiply the value of
+     * each ballot by.  ONE_VOTE keeps the values unchanged.
+     */
+    private void transferBallots(IntList toTransfer, long transferValue) {
+        for (int i = 0; i < toTransfer.size(); i++) {
+            int ballot = toTransfer.get(i);
+            if (transferValue != ONE_VOTE) {
+                values[ballot] = values[ballot] * transferValue / ONE_VOTE;
+            }
+            if (values[ballot] > 0) {
+                assignBallotToCandidate(ballot);
+            }
+        }
+    }
+
+    /**
+     * @param quota the votes a candidate needs
+     * @return the hopeful candidate with the most votes, if they have at
+     * least quota votes, or -1.  Ties go to the candidate listed first.
+     */
+    private int highestHopeful(long quota) {
+        int highest = -1;
+        for (int c = 0; c < candidates.length; c++) {
+            if (isHopeful(c) && votes[c] >= quota
+                    && (highest < 0 || votes[c] > votes[highest])) {
+                highest = c;
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * @return the hopeful candidate with the fewest votes.  Ties go to the
+     * candidate listed first.
+     */
+    private int lowestHopeful() {
+        int lowest = -1;
+        for (int c = 0; c < candidates.length; c++) {
+            if (isHopeful(c) && (lowest < 0 || votes[c] < votes[lowest])) {
+                lowest = c;
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * @param surplusBallots the ballot groups of each elected candidate whose
+     * surplus has not been transferred, or null
+     * @return the candidate with the largest surplus still to transfer, or
+     * -1 if there is none.  Ties go to the candidate listed first.
+     */
+    private int largestSurplus(IntList[] surplusBallots) {
+        int largest = -1;
+        for (int c = 0; c < candidates.length; c++) {
+            if (surplusBallots[c] != null
+                    && (largest < 0 || votes[c] > votes[largest])) {
+                largest = c;
+            }
+        }
+        return largest;
+    }
+
+    private boolean isHopeful(int candidate) {
+        return !candidates[candidate].isElected()
+                && !candidates[candidate].isEliminated();
+    }
+}
@@ -0,0 +1,57 @@
+import java.util.Arrays;
+
+/**
+ * A TallyHistory holds every candidate's votes at the start of each round
+ * of a tabulation.  The tallies are kept end to end in a single int array,
+ * one row of candidates per round, so recording a round is one array copy
+ * and looking a candidate up in any round is a single read.
+ */
+public class TallyHistory {
+    // The number of candidates in each row.
+    private final int numCandidates;
+
+    // The tallies of every round, oldest first.  Only the first
+    // rounds * numCandidates entries are in use.
+    private int[] tallies;
+
+    private int rounds;
+
+    /**
+     * Create an empty history.
+     * @param numCandidates the number of candidates in the election
+     */
+    public TallyHistory(int numCandidates) {
+        this.numCandidates = numCandidates;
+        this.tallies = new int[Math.max(numCandidates, 1) * 8];
+    }
+
+    /**
+     * Adds the tallies of the next round.
+     * @param votes each candidate's votes.  The array is copied.
+     */
+    public void record(int[] votes) {
+        int start = rounds * numCandidates;
+        if (start + numCandidates > tallies.length) {
+            tallies = Arrays.copyOf(tallies, tallies.length * 2);
+        }
+        System.arraycopy(votes, 0, tallies, start, numCandidates);
+        rounds++;
+    }
+
+    /**
+     * @return the number of rounds recorded
+     */
+    public int getRoundCount() {
+        return rounds;
+    }
+
+    /**
+     * @param round the index of a recorded round, from 0 for the oldest to
+     * getRoundCount() - 1 for the latest
+     * @param candidate the index of a candidate
+     * @return the candidate's votes at the start of that round
+     */
+    public int getVotes(int round, int candidate) {
+        return tallies[round * numCandidates + candidate];
+    }
+}
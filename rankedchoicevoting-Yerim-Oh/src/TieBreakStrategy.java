@@ -0,0 +1,37 @@
+/**
+ * A TieBreakStrategy decides which candidates are eliminated when two or
+ * more candidates are tied for the fewest votes in a round.  Without a
+ * strategy, Election eliminates the tied candidate listed first on the
+ * ballot.
+ *
+ * A strategy is only asked when the tie matters: if every remaining
+ * candidate has the same number of votes, the election ends in a tie
+ * between all of them.
+ *
+ * An election uses the same strategy for every tabulation, and tabulations
+ * may run at once on several threads, so a strategy should keep no state
+ * between calls.  Its choice should depend only on what it is given.
+ */
+public interface TieBreakStrategy {
+    /**
+     * Chooses which of the tied candidates to eliminate.
+     * @param tied the ids of the candidates tied for the fewest votes, in
+     * ballot order.  There are at least two, and at least one other
+     * candidate has more votes.
+     * @param round the number of the round, from 1
+     * @param history each candidate's votes at the start of every round so
+     * far, including the current one, if needsHistory returns true.
+     * Otherwise null.
+     * @return the ids of the candidates to eliminate this round, at least
+     * one of them, all taken from tied
+     */
+    int[] choose(int[] tied, int round, TallyHistory history);
+
+    /**
+     * @return true if the strategy looks at earlier rounds, so that the
+     * election has to keep a TallyHistory.  The default is false.
+     */
+    default boolean needsHistory() {
+        return false;
+    }
+}
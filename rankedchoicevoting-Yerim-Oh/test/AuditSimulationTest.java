@@ -0,0 +1,109 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class AuditSimulationTest {
+
+    @Test
+    void testTabulationMatchesSelectWinner() {
+        /*
+         * Purpose: Test that a trial without resampling gives the same 
+         * result as Election.selectWinner.  Method: tabulate 
+         * Initialization: 300 random elections with partial ballots, 
+         * tabulated with their original weights.  Parameters: None Correct
+         * result: The same winner, or a tie whenever selectWinner finds one
+         */
+        Random random = new Random(18);
+        for (int i = 0; i < 300; i++) {
+            int numCandidates = 2 + random.nextInt(10);
+            int numBallots = random.nextInt(200);
+            long seed = random.nextLong();
+            List<int[]> randomBallots = TestElections.randomBallots(
+                    new Random(seed), numCandidates, numBallots, true);
+            AuditSimulation simulation = new AuditSimulation(
+                    TestElections.newElection(numCandidates, randomBallots));
+            Election election = TestElections.newElection(numCandidates, randomBallots);
+            BallotStore ballots = election.getBallots();
+            AuditSimulation.Scratch scratch = new AuditSimulation.Scratch(ballots.size());
+            System.arraycopy(ballots.getWeightArray(), 0, scratch.weights, 0, 
+                             ballots.size());
+
+            int winner = simulation.tabulate(scratch);
+            List<String> expected = election.selectWinner();
+            if (expected.size() == 1) {
+                assertEquals(expected.get(0), "C" + winner, "election " + i);
+            }
+            else {
+                assertEquals(-1, winner, "election " + i);
+            }
+        }
+    }
+
+    @Test
+    void testTrialUsesElectionSettings() {
+        /*
+         * Purpose: Test that trials are counted with the election's tie 
+         * break and batch elimination.  Method: tabulate Initialization: 15
+         * ballots on which B and C tie for the fewest votes in round 2,
+         * though C had fewer in round 1, with a LookbackTieBreak and batch
+         * elimination, tabulated with the original weights.  Parameters:
+         * None Correct result: C is eliminated and A wins by 11 votes to 4,
+         * as selectWinner finds, rather than B being eliminated as the 
+         * candidate listed first
+         */
+        Election election = TestElections.newTiedElection(new LookbackTieBreak());
+        election.setBatchElimination(true);
+        AuditSimulation simulation = new AuditSimulation(election);
+        BallotStore ballots = election.getBallots();
+        AuditSimulation.Scratch scratch = new AuditSimulation.Scratch(ballots.size());
+        System.arraycopy(ballots.getWeightArray(), 0, scratch.weights, 0, 
+                         ballots.size());
+
+        assertEquals(0, simulation.tabulate(scratch));
+        assertEquals(7, scratch.margin);
+        assertEquals("[A]", election.selectWinner().toString());
+    }
+
+    @Test
+    void testLandslide() {
+        /*
+         * Purpose: Test a simulation whose outcome is never in doubt.  
+         * Method: run Initialization: 1,000 ballots, 800 of which rank C0
+         * first.  Parameters: 200 trials on 4 threads Correct result: C0
+         * wins every trial by a margin of several hundred ballots
+         */
+        Election election = TestElections.newElection("C0", "C1", "C2");
+        TestElections.addBallots(election, 800, 1, 2, 3);
+        TestElections.addBallots(election, 200, 3, 1, 2);
+        AuditResult result = new AuditSimulation(election).run(200, 4, 7);
+        assertEquals(200, result.getTrials());
+        assertEquals(200, result.getWins(0));
+        assertEquals(0, result.getTies());
+        assertTrue(result.getMinMargin() > 400);
+        assertTrue(Math.abs(result.getMeanMargin() - 600) < 20);
+    }
+
+    @Test
+    void testSameResultOnAnyNumberOfThreads() {
+        /*
+         * Purpose: Test that the result depends only on the seed.  Method:
+         * run Initialization: A close random election with 5 candidates and
+         * 2,000 ballots.  Parameters: 300 trials with seed 3, on 1 and on 3
+         * threads Correct result: The same wins, ties and margins
+         */
+        List<int[]> ballots = TestElections.randomBallots(new Random(3), 5, 2000, true);
+        AuditResult one = new AuditSimulation(
+                TestElections.newElection(5, ballots)).run(300, 1, 3);
+        AuditResult three = new AuditSimulation(
+                TestElections.newElection(5, ballots)).run(300, 3, 3);
+        for (int c = 0; c < 5; c++) {
+            assertEquals(one.getWins(c), three.getWins(c));
+        }
+        assertEquals(one.getTies(), three.getTies());
+        assertEquals(one.getMinMargin(), three.getMinMargin());
+        assertEquals(one.getMaxMargin(), three.getMaxMargin());
+    }
+}
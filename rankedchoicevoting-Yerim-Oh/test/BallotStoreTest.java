@@ -0,0 +1,143 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class BallotStoreTest {
+
+    @Test
+    void testIdenticalBallotsMerge() {
+        /*
+         * Purpose: Test that identical rankings are stored as one group.
+         * Method: add Initialization: 20,000 random full rankings of 5
+         * candidates.  Parameters: None Correct result: No more than the
+         * 120 possible rankings are stored, each once, with the number of
+         * ballots that had it as its weight
+         */
+        Random random = new Random(10);
+        BallotStore store = new BallotStore(5);
+        Map<String, Integer> expected = new HashMap<>();
+        for (int b = 0; b < 20000; b++) {
+            int[] ranks = TestElections.randomBallot(random, 5);
+            store.add(ranks);
+            expected.merge(Arrays.toString(preferences(ranks)), 1, Integer::sum);
+        }
+        assertEquals(20000, store.getBallotCount());
+        assertTrue(store.size() <= 120);
+        assertEquals(expected.size(), store.size());
+
+        int[] dest = new int[5];
+        for (int g = 0; g < store.size(); g++) {
+            int numRanked = store.getPreferences(g, dest);
+            String ranking = Arrays.toString(Arrays.copyOf(dest, numRanked));
+            assertEquals((int) expected.remove(ranking), store.getWeight(g));
+        }
+        assertTrue(expected.isEmpty());
+    }
+
+    @Test
+    void testAggregationSwitchesOff() {
+        /*
+         * Purpose: Test that aggregation stops when ballots rarely repeat.
+         * Method: add Initialization: Random full rankings of 12
+         * candidates, which almost never repeat.  Parameters: A repeat of
+         * the first ballot after 100 ballots, and again after 5,000, past
+         * the 4,096 at which aggregation is judged Correct result: The first
+         * repeat joins the first ballot's group, and the second is stored as
+         * a group of its own
+         */
+        Random random = new Random(11);
+        BallotStore store = new BallotStore(12);
+        int[] first = TestElections.randomBallot(random, 12);
+        store.add(first);
+        for (int b = 1; b < 100; b++) {
+            store.add(TestElections.randomBallot(random, 12));
+        }
+        int size = store.size();
+        assertEquals(0, store.add(first));
+        assertEquals(size, store.size());
+        assertEquals(2, store.getWeight(0));
+
+        while (store.getBallotCount() < 5000) {
+            store.add(TestElections.randomBallot(random, 12));
+        }
+        size = store.size();
+        assertEquals(size, store.add(first));
+        assertEquals(size + 1, store.size());
+        assertEquals(2, store.getWeight(0));
+        assertEquals(1, store.getWeight(size));
+    }
+
+    @Test
+    void testNoAggregation() {
+        /*
+         * Purpose: Test a store made without aggregation.  Method: add
+         * Initialization: A store with aggregation off.  Parameters: The
+         * same ballot 3 times Correct result: 3 groups of weight 1
+         */
+        BallotStore store = new BallotStore(3, false);
+        for (int b = 0; b < 3; b++) {
+            assertEquals(b, store.add(new int[] {2, 1, 3}));
+        }
+        assertEquals(3, store.size());
+        assertEquals(3, store.getBallotCount());
+        assertEquals(1, store.getWeight(2));
+    }
+
+    @Test
+    void testAggregationGivesSameRounds() {
+        /*
+         * Purpose: Test that aggregating ballots does not change the count.
+         * Method: selectWinner Initialization: 40 random elections with 2 to
+         * 13 candidates and up to 10,000 partial ballots, so that some keep
+         * aggregating and some switch it off, counted once from a store that
+         * aggregates and once from one that does not.  Parameters: With and
+         * without batch elimination Correct result: The same rounds and the
+         * same winner
+         */
+        Random random = new Random(12);
+        for (int i = 0; i < 40; i++) {
+            int numCandidates = 2 + random.nextInt(12);
+            List<int[]> ballots = TestElections.randomBallots(random, numCandidates,
+                    random.nextInt(10000), true);
+            BallotStore aggregated = new BallotStore(numCandidates, true);
+            BallotStore separate = new BallotStore(numCandidates, false);
+            for (int[] ranks : ballots) {
+                aggregated.add(ranks);
+                separate.add(ranks);
+            }
+            String[] names = new String[numCandidates];
+            for (int c = 0; c < numCandidates; c++) {
+                names[c] = "C" + c;
+            }
+            boolean batch = i % 2 == 0;
+            RoundRecorder expected = new RoundRecorder();
+            Election withoutGroups = new Election(names, separate);
+            withoutGroups.setBatchElimination(batch);
+            withoutGroups.addRoundListener(expected);
+            RoundRecorder actual = new RoundRecorder();
+            Election withGroups = new Election(names, aggregated);
+            withGroups.setBatchElimination(batch);
+            withGroups.addRoundListener(actual);
+
+            assertEquals(withoutGroups.selectWinner(), withGroups.selectWinner());
+            TestElections.assertSameRounds(expected, actual);
+        }
+    }
+
+    /**
+     * @return the candidates of a ballot in preference order
+     */
+    private static int[] preferences(int[] ranks) {
+        int[] preferences = new int[ranks.length];
+        for (int c = 0; c < ranks.length; c++) {
+            preferences[ranks[c] - 1] = c;
+        }
+        return preferences;
+    }
+}
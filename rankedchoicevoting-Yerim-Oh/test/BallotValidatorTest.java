@@ -0,0 +1,120 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class BallotValidatorTest {
+
+    @Test
+    void testValidBallots() {
+        /*
+         * Purpose: Test that valid ballots pass, including after an invalid
+         * one.  Method: check, checkPreferences Initialization: A validator
+         * for 4 candidates.  Parameters: A complete ballot, a partial ballot,
+         * an empty ballot, a rejected ballot, then the complete ballot again,
+         * and the same ballots in preference order Correct result: No
+         * exception for any valid ballot
+         */
+        BallotValidator validator = new BallotValidator(4);
+        validator.check(new int[] {2, 4, 1, 3}, 4);
+        validator.check(new int[] {0, 2, 1, 0}, 4);
+        validator.check(new int[] {0, 0, 0, 0}, 4);
+        assertThrows(InvalidBallotException.class,
+                     () -> validator.check(new int[] {1, 1, 0, 0}, 4));
+        validator.check(new int[] {2, 4, 1, 3}, 4);
+        validator.checkPreferences(new int[] {2, 0, 3, 1}, 4);
+        validator.checkPreferences(new int[] {2, 1}, 2);
+        validator.checkPreferences(new int[0], 0);
+    }
+
+    @Test
+    void testWrongLength() {
+        /*
+         * Purpose: Test ballots with the wrong number of entries.  Method:
+         * check, checkPreferences Initialization: A validator for 3
+         * candidates.  Parameters: 2 and 4 ranks, and 4 preferences Correct
+         * result: WRONG_LENGTH with the number of ranks or preferences
+         */
+        BallotValidator validator = new BallotValidator(3);
+        assertReason(InvalidBallotException.Reason.WRONG_LENGTH, 2,
+                     () -> validator.check(new int[] {1, 2}, 2));
+        assertReason(InvalidBallotException.Reason.WRONG_LENGTH, 4,
+                     () -> validator.check(new int[] {1, 2, 3, 4}, 4));
+        assertReason(InvalidBallotException.Reason.WRONG_LENGTH, 4,
+                     () -> validator.checkPreferences(new int[] {0, 1, 2, 0}, 4));
+    }
+
+    @Test
+    void testDuplicateRank() {
+        /*
+         * Purpose: Test a ballot that uses a rank twice.  Method: check
+         * Initialization: A validator for 3 candidates.  Parameters: 2 1 2
+         * Correct result: DUPLICATE_RANK with rank 2
+         */
+        assertReason(InvalidBallotException.Reason.DUPLICATE_RANK, 2,
+                     () -> new BallotValidator(3).check(new int[] {2, 1, 2}, 3));
+    }
+
+    @Test
+    void testRankOutOfRange() {
+        /*
+         * Purpose: Test ranks that no ballot can have.  Method: check
+         * Initialization: A validator for 3 candidates.  Parameters: a rank
+         * of 4, and a rank of -1 Correct result: RANK_OUT_OF_RANGE with the
+         * rank
+         */
+        BallotValidator validator = new BallotValidator(3);
+        assertReason(InvalidBallotException.Reason.RANK_OUT_OF_RANGE, 4,
+                     () -> validator.check(new int[] {1, 4, 2}, 3));
+        assertReason(InvalidBallotException.Reason.RANK_OUT_OF_RANGE, -1,
+                     () -> validator.check(new int[] {-1, 1, 2}, 3));
+    }
+
+    @Test
+    void testSkippedRank() {
+        /*
+         * Purpose: Test a ballot whose ranks have a gap.  Method: check
+         * Initialization: A validator for 4 candidates.  Parameters: 1 0 3 0
+         * and 0 4 0 1 Correct result: SKIPPED_RANK with the first rank
+         * missing, 2
+         */
+        BallotValidator validator = new BallotValidator(4);
+        assertReason(InvalidBallotException.Reason.SKIPPED_RANK, 2,
+                     () -> validator.check(new int[] {1, 0, 3, 0}, 4));
+        assertReason(InvalidBallotException.Reason.SKIPPED_RANK, 2,
+                     () -> validator.check(new int[] {0, 4, 0, 1}, 4));
+    }
+
+    @Test
+    void testCandidateOutOfRange() {
+        /*
+         * Purpose: Test a ballot in preference order that ranks a candidate
+         * who does not exist.  Method: checkPreferences Initialization: A
+         * validator for 3 candidates.  Parameters: Candidates 3 and -1
+         * Correct result: CANDIDATE_OUT_OF_RANGE with the candidate id
+         */
+        BallotValidator validator = new BallotValidator(3);
+        assertReason(InvalidBallotException.Reason.CANDIDATE_OUT_OF_RANGE, 3,
+                     () -> validator.checkPreferences(new int[] {0, 3}, 2));
+        assertReason(InvalidBallotException.Reason.CANDIDATE_OUT_OF_RANGE, -1,
+                     () -> validator.checkPreferences(new int[] {-1}, 1));
+    }
+
+    @Test
+    void testDuplicateCandidate() {
+        /*
+         * Purpose: Test a ballot in preference order that ranks a candidate
+         * twice.  Method: checkPreferences Initialization: A validator for 3
+         * candidates.  Parameters: 1 0 1 Correct result: DUPLICATE_CANDIDATE
+         * with candidate 1
+         */
+        assertReason(InvalidBallotException.Reason.DUPLICATE_CANDIDATE, 1,
+                () -> new BallotValidator(3).checkPreferences(new int[] {1, 0, 1}, 3));
+    }
+
+    private static void assertReason(InvalidBallotException.Reason reason, int value,
+                                     Runnable check) {
+        InvalidBallotException e = assertThrows(InvalidBallotException.class, check::run);
+        assertEquals(reason, e.getReason());
+        assertEquals(value, e.getValue());
+    }
+}
@@ -0,0 +1,206 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+class BinaryElectionTest {
+
+    @Test
+    void testRoundTripAtEachWidth() throws Exception {
+        /*
+         * Purpose: Test that elections survive being written and read back
+         * with each field width.  Method: BinaryElectionWriter,
+         * BinaryElectionLoader.load Initialization: 500 random ballots, of
+         * every length from 1 candidate to all of them.  Parameters: 1, 2,
+         * 15 and 16 candidates on either side of the nibble boundary, 255
+         * and 256 on either side of the byte boundary Correct result: The
+         * file uses the expected width, and the loaded election has the
+         * same ballots and winner as one built directly
+         */
+        int[][] widths = {{1, 4}, {2, 4}, {15, 4}, {16, 8}, {255, 8}, {256, 16}};
+        for (int[] width : widths) {
+            int numCandidates = width[0];
+            Random random = new Random(numCandidates);
+            Election direct = new Election(numCandidates);
+            Path file = Files.createTempFile("election", ".rcvb");
+            try {
+                try (BinaryElectionWriter writer = new BinaryElectionWriter(file)) {
+                    writer.begin(numCandidates);
+                    for (int c = 0; c < numCandidates; c++) {
+                        writer.addCandidate("C" + c);
+                        direct.addCandidate("C" + c);
+                    }
+                    for (int b = 0; b < 500; b++) {
+                        int[] ranks = TestElections.randomBallot(random, numCandidates);
+                        writer.addBallot(ranks, ranks.length);
+                        direct.addBallot(ranks);
+                    }
+                }
+                assertEquals(width[1], Files.readAllBytes(file)[5]);
+                assertTrue(BinaryElectionFormat.isBinaryElectionFile(file));
+
+                Election loaded = BinaryElectionLoader.load(file);
+                assertEquals(numCandidates, loaded.getCandidateNames().length);
+                assertEquals("C" + (numCandidates - 1),
+                             loaded.getCandidateNames()[numCandidates - 1]);
+                assertSameBallots(direct.getBallots(), loaded.getBallots());
+                assertEquals(direct.selectWinner(), loaded.selectWinner());
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void testHighestCandidateIds() throws Exception {
+        /*
+         * Purpose: Test that the largest id of each width is not cut off.
+         * Method: BinaryElectionWriter, BinaryElectionLoader.load
+         * Initialization: One ballot ranking the candidates from the last to
+         * the first.  Parameters: 15, 255 and 256 candidates Correct result:
+         * The loaded ballot lists the candidates from the last to the first
+         * and the last candidate wins
+         */
+        for (int numCandidates : new int[] {15, 255, 256}) {
+            int[] ranks = new int[numCandidates];
+            for (int c = 0; c < numCandidates; c++) {
+                ranks[c] = numCandidates - c;
+            }
+            Path file = Files.createTempFile("election", ".rcvb");
+            try {
+                try (BinaryElectionWriter writer = new BinaryElectionWriter(file)) {
+                    writer.begin(numCandidates);
+                    for (int c = 0; c < numCandidates; c++) {
+                        writer.addCandidate("C" + c);
+                    }
+                    writer.addBallot(ranks, ranks.length);
+                }
+                Election loaded = BinaryElectionLoader.load(file);
+                int[] preferences = new int[numCandidates];
+                assertEquals(numCandidates, loaded.getBallots().getPreferences(0, preferences));
+                for (int r = 0; r < numCandidates; r++) {
+                    assertEquals(numCandidates - 1 - r, preferences[r]);
+                }
+                assertEquals("C" + (numCandidates - 1), loaded.selectWinner().get(0));
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void testDetectFormat() throws Exception {
+        /*
+         * Purpose: Test telling binary election files from text ones.
+         * Method: isBinaryElectionFile, BinaryElectionLoader.load
+         * Initialization: A text election file, an empty file, a file
+         * holding only part of the magic bytes, and a binary file with no
+         * ballots.  Parameters: None Correct result: Only the binary file is
+         * detected, and loading the text file as binary is refused
+         */
+        Path text = write("3\nAlice\nBob\nCarol\n1 2 3\n2 1 3\n"
+                          .getBytes(StandardCharsets.UTF_8));
+        Path empty = write(new byte[0]);
+        Path partial = write(new byte[] {'R', 'C', 'V'});
+        Path binary = Files.createTempFile("election", ".rcvb");
+        try {
+            try (BinaryElectionWriter writer = new BinaryElectionWriter(binary)) {
+                writer.begin(2);
+                writer.addCandidate("A");
+                writer.addCandidate("B");
+            }
+            assertFalse(BinaryElectionFormat.isBinaryElectionFile(text));
+            assertFalse(BinaryElectionFormat.isBinaryElectionFile(empty));
+            assertFalse(BinaryElectionFormat.isBinaryElectionFile(partial));
+            assertTrue(BinaryElectionFormat.isBinaryElectionFile(binary));
+
+            ElectionFormatException e = assertThrows(ElectionFormatException.class,
+                    () -> BinaryElectionLoader.load(text));
+            assertEquals("This is not a binary election file.", e.getMessage());
+            assertEquals(0, BinaryElectionLoader.load(binary).getBallots().getBallotCount());
+        } finally {
+            Files.delete(text);
+            Files.delete(empty);
+            Files.delete(partial);
+            Files.delete(binary);
+        }
+    }
+
+    @Test
+    void testConverterLeavesNoPartialFile() throws Exception {
+        /*
+         * Purpose: Test that a text file that fails partway through is not
+         * converted at all.  Method: ElectionFileConverter.convert
+         * Initialization: A directory holding a valid text election and a
+         * copy with a bad ballot on line 7.  Parameters: The bad file with
+         * no binary file yet, then with the converted valid file in the way
+         * Correct result: The good file converts and loads with A winning.
+         * The bad file throws ElectionFormatException, creates no binary
+         * file and leaves an existing one unchanged, and no temporary file
+         * is left in the directory
+         */
+        Path directory = Files.createTempDirectory("convert");
+        Path good = directory.resolve("good.txt");
+        Path bad = directory.resolve("bad.txt");
+        Path binary = directory.resolve("election.rcvb");
+        try {
+            Files.write(good, "3\nA\nB\nC\n1 2 3\n1 3 2\n2 1 3\n"
+                              .getBytes(StandardCharsets.UTF_8));
+            Files.write(bad, "3\nA\nB\nC\n1 2 3\n1 3 2\n2 2 3\n"
+                             .getBytes(StandardCharsets.UTF_8));
+
+            assertThrows(ElectionFormatException.class,
+                         () -> ElectionFileConverter.convert(bad, binary));
+            assertFalse(Files.exists(binary));
+            assertEquals(2, fileCount(directory));
+
+            assertEquals(3L, ElectionFileConverter.convert(good, binary));
+            byte[] converted = Files.readAllBytes(binary);
+            assertThrows(ElectionFormatException.class,
+                         () -> ElectionFileConverter.convert(bad, binary));
+            assertArrayEquals(converted, Files.readAllBytes(binary));
+            assertEquals(3, fileCount(directory));
+            Election election = BinaryElectionLoader.load(binary);
+            assertEquals(3, election.getBallots().getBallotCount());
+            assertEquals("A", election.selectWinner().get(0));
+        } finally {
+            Files.deleteIfExists(good);
+            Files.deleteIfExists(bad);
+            Files.deleteIfExists(binary);
+            Files.delete(directory);
+        }
+    }
+
+    private static void assertSameBallots(BallotStore expected, BallotStore actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.getBallotCount(), actual.getBallotCount());
+        int[] expectedPreferences = new int[BallotStore.MAX_CANDIDATES];
+        int[] actualPreferences = new int[BallotStore.MAX_CANDIDATES];
+        for (int b = 0; b < expected.size(); b++) {
+            int numRanked = expected.getPreferences(b, expectedPreferences);
+            assertEquals(numRanked, actual.getPreferences(b, actualPreferences));
+            for (int r = 0; r < numRanked; r++) {
+                assertEquals(expectedPreferences[r], actualPreferences[r]);
+            }
+            assertEquals(expected.getWeight(b), actual.getWeight(b));
+        }
+    }
+
+    private static long fileCount(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static Path write(byte[] contents) throws IOException {
+        Path file = Files.createTempFile("election", ".txt");
+        Files.write(file, contents);
+        return file;
+    }
+}
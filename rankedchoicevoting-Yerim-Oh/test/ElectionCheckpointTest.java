@@ -0,0 +1,276 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ElectionCheckpointTest {
+    private static final int NUM_CANDIDATES = 8;
+
+    @Test
+    void testResumeAfterEachRound() throws Exception {
+        /*
+         * Purpose: Test that a tabulation interrupted in any round can be
+         * resumed and reaches the same result.  Method: setCheckpoint, 
+         * resume, selectWinner Initialization: 3,000 random partial ballots
+         * for 8 candidates.  A round listener stops the tabulation in round
+         * k, before that round is saved.  Parameters: Every round k but the
+         * last Correct result: The resumed election starts at round k and
+         * elects the same winner
+         */
+        RoundRecorder full = new RoundRecorder();
+        Election uninterrupted = newElection(1);
+        uninterrupted.addRoundListener(full);
+        List<String> winner = uninterrupted.selectWinner();
+        int numRounds = full.getReports().size();
+        assertTrue(numRounds > 2);
+
+        Path file = Files.createTempFile("checkpoint", ".rcvc");
+        try {
+            for (int k = 1; k < numRounds; k++) {
+                int stopRound = k;
+                Election election = newElection(1);
+                election.setCheckpoint(file);
+                election.addRoundListener(report -> {
+                    if (report.getRound() == stopRound) {
+                        throw new IllegalStateException("interrupted");
+                    }
+                });
+                assertThrows(IllegalStateException.class, election::selectWinner);
+
+                assertTrue(ElectionCheckpoint.isCheckpointFile(file));
+                Election resumed = ElectionCheckpoint.resume(file);
+                RoundRecorder rest = new RoundRecorder();
+                resumed.addRoundListener(rest);
+                assertEquals(winner, resumed.selectWinner());
+                assertEquals(stopRound, rest.getReports().get(0).getRound());
+                assertEquals(numRounds - stopRound + 1, rest.getReports().size());
+                for (int c = 0; c < NUM_CANDIDATES; c++) {
+                    assertEquals(full.getReports().get(stopRound - 1).getVotes(c),
+                                 rest.getReports().get(0).getVotes(c));
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testResumeInParallel() throws Exception {
+        /*
+         * Purpose: Test resuming with sharded tabulation.  Method: 
+         * setCheckpoint, resume, setParallelism Initialization: The same
+         * ballots, interrupted in round 2 and resumed with 4 threads.
+         * Parameters: None Correct result: The same winner as an
+         * uninterrupted tabulation
+         */
+        List<String> winner = newElection(1).selectWinner();
+        Path file = Files.createTempFile("checkpoint", ".rcvc");
+        try {
+            Election election = newElection(4);
+            election.setCheckpoint(file);
+            election.addRoundListener(report -> {
+                if (report.getRound() == 2) {
+                    throw new IllegalStateException("interrupted");
+                }
+            });
+            assertThrows(IllegalStateException.class, election::selectWinner);
+            Election resumed = ElectionCheckpoint.resume(file);
+            resumed.setParallelism(4);
+            assertEquals(winner, resumed.selectWinner());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testResumeMidTie() throws Exception {
+        /*
+         * Purpose: Test that tie breaks choose the same candidates after
+         * resuming.  Method: setTieBreakStrategy, resume, selectWinner
+         * Initialization: 15 ballots for A, B, C and D on which B and C are
+         * tied for the fewest votes in round 2, though C had fewer in round
+         * 1.  The tabulation is interrupted in round 2 and resumed with the
+         * same strategy.  Parameters: A LookbackTieBreak, and RandomTieBreaks
+         * with seeds 0 to 9 Correct result: The resumed election starts at
+         * round 2 and has the same winner as an uninterrupted tabulation, 
+         * which is A for the LookbackTieBreak
+         */
+        List<TieBreakStrategy> strategies = new ArrayList<>();
+        strategies.add(new LookbackTieBreak());
+        for (long seed = 0; seed < 10; seed++) {
+            strategies.add(new RandomTieBreak(seed));
+        }
+        assertEquals(Arrays.asList("A"), 
+                     TestElections.newTiedElection(strategies.get(0)).selectWinner());
+        Path file = Files.createTempFile("checkpoint", ".rcvc");
+        try {
+            for (TieBreakStrategy tieBreak : strategies) {
+                List<String> winner = TestElections.newTiedElection(tieBreak).selectWinner();
+                Election election = TestElections.newTiedElection(tieBreak);
+                election.setCheckpoint(file);
+                election.addRoundListener(report -> {
+                    if (report.getRound() == 2) {
+                        throw new IllegalStateException("interrupted");
+                    }
+                });
+                assertThrows(IllegalStateException.class, election::selectWinner);
+
+                Election resumed = ElectionCheckpoint.resume(file);
+                resumed.setTieBreakStrategy(tieBreak);
+                RoundRecorder rest = new RoundRecorder();
+                resumed.addRoundListener(rest);
+                assertEquals(winner, resumed.selectWinner());
+                assertEquals(2, rest.getReports().get(0).getRound());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testDamagedSlot() throws Exception {
+        /*
+         * Purpose: Test that a damaged state slot is ignored.  Method: 
+         * resume Initialization: A tabulation interrupted in round 3, so 
+         * round 2 is in the first slot and round 1 in the second.  The 
+         * first slot is then damaged, and later both slots.  Parameters:
+         * None Correct result: Resuming starts at round 2 once the first 
+         * slot is damaged, and fails with ElectionFormatException once both
+         * are
+         */
+        Path file = Files.createTempFile("checkpoint", ".rcvc");
+        try {
+            Election election = newElection(1);
+            election.setCheckpoint(file);
+            election.addRoundListener(report -> {
+                if (report.getRound() == 3) {
+                    throw new IllegalStateException("interrupted");
+                }
+            });
+            assertThrows(IllegalStateException.class, election::selectWinner);
+
+            // The last 4 bytes of each slot are its checksum.  The slots are
+            // followed by the tallies of rounds 1 to 3.
+            long slotsEnd = Files.size(file) - 3 * 4L * NUM_CANDIDATES;
+            long slotSize = 8 + 5L * NUM_CANDIDATES + 2L * ballotGroups(file);
+            damage(file, slotsEnd - slotSize - 1);
+            RoundRecorder rounds = new RoundRecorder();
+            Election resumed = ElectionCheckpoint.resume(file);
+            resumed.addRoundListener(rounds);
+            resumed.selectWinner();
+            assertEquals(2, rounds.getReports().get(0).getRound());
+
+            // The resumed election has saved its own rounds since.
+            damage(file, slotsEnd - slotSize - 1);
+            damage(file, slotsEnd - 1);
+            assertThrows(ElectionFormatException.class, 
+                         () -> ElectionCheckpoint.resume(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testCorruptedBallots() throws Exception {
+        /*
+         * Purpose: Test that damaged counts and ballots in a checkpoint are
+         * reported when it is read, not during the tabulation.  Method:
+         * resume Initialization: A checkpoint of a tabulation interrupted in
+         * round 2, with the candidates C0 to C7, so the ballots start at
+         * byte 72.  Parameters: Group and preference counts too large for
+         * the file, including Integer.MAX_VALUE, an offset that goes
+         * backwards, a candidate id past the last candidate, and a group
+         * weight of 0 Correct result: ElectionFormatException for each
+         */
+        Path file = Files.createTempFile("checkpoint", ".rcvc");
+        try {
+            Election election = newElection(1);
+            election.setCheckpoint(file);
+            election.addRoundListener(report -> {
+                if (report.getRound() == 2) {
+                    throw new IllegalStateException("interrupted");
+                }
+            });
+            assertThrows(IllegalStateException.class, election::selectWinner);
+            byte[] original = Files.readAllBytes(file);
+            ByteBuffer header = ByteBuffer.wrap(original);
+            int numGroups = header.getInt(12);
+            int numPreferences = header.getInt(20);
+            int ballotStart = 24 + NUM_CANDIDATES * (4 + 2);
+            int preferenceStart = ballotStart + 4 * (numGroups + 1);
+            int weightStart = preferenceStart + 2 * numPreferences;
+
+            int[][] corruptions = {
+                {12, Integer.MAX_VALUE},
+                {12, 1 << 28},
+                {20, Integer.MAX_VALUE},
+                {20, numPreferences + 1},
+                {ballotStart + 4, -1},
+                {weightStart, 0},
+            };
+            for (int[] corruption : corruptions) {
+                ByteBuffer damaged = ByteBuffer.wrap(original.clone());
+                damaged.putInt(corruption[0], corruption[1]);
+                Files.write(file, damaged.array());
+                assertThrows(ElectionFormatException.class,
+                             () -> ElectionCheckpoint.resume(file));
+            }
+            ByteBuffer damaged = ByteBuffer.wrap(original.clone());
+            damaged.putShort(preferenceStart, (short) NUM_CANDIDATES);
+            Files.write(file, damaged.array());
+            assertThrows(ElectionFormatException.class,
+                         () -> ElectionCheckpoint.resume(file));
+
+            Files.write(file, original);
+            assertEquals(newElection(1).selectWinner(), 
+                         ElectionCheckpoint.resume(file).selectWinner());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * @return an election with the test ballots
+     */
+    private static Election newElection(int parallelism) {
+        Election election = TestElections.newElection(NUM_CANDIDATES,
+                TestElections.randomBallots(new Random(16), NUM_CANDIDATES, 3000, true));
+        election.setParallelism(parallelism);
+        return election;
+    }
+
+    /**
+     * @return the number of ballot groups in a checkpoint file's header
+     */
+    private static int ballotGroups(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            channel.read(header, 0);
+            return header.getInt(12);
+        }
+    }
+
+    /**
+     * Flips the bits of one byte of a file.
+     */
+    private static void damage(Path file, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, position);
+            b.put(0, (byte) ~b.get(0));
+            b.rewind();
+            channel.write(b, position);
+        }
+    }
+}
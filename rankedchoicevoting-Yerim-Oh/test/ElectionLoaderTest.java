@@ -0,0 +1,164 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ElectionLoaderTest {
+
+    @Test
+    void testLoadFile() throws Exception {
+        /*
+         * Purpose: Test loading a well formed file.  Method: load
+         * Initialization: A file with a blank line before the candidate
+         * count, 3 candidates and 3 ballots, one of them partial, with
+         * Windows line endings and no line ending on the last ballot.
+         * Parameters: None Correct result: The candidates and ballots are
+         * read and A wins
+         */
+        Path file = write("\r\n3\r\nA\r\nB\r\nC\r\n1 2 3\r\n1 0 2\r\n2 1 3");
+        try {
+            RecordingSink sink = new RecordingSink();
+            ElectionLoader.read(file, sink);
+            assertEquals(Arrays.asList("A", "B", "C"), sink.names);
+            assertEquals(Arrays.asList("1 2 3", "1 0 2", "2 1 3"), sink.ballots);
+            assertEquals(Arrays.asList("A"), ElectionLoader.load(file).selectWinner());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testErrorsNameTheLine() throws Exception {
+        /*
+         * Purpose: Test the messages for files that cannot be loaded.
+         * Method: load Initialization: Files with no candidate count, more
+         * candidates than a ballot store holds, too few candidates, a ballot
+         * that is not numbers, a number too large to parse, and a ballot
+         * that repeats a rank.  Parameters: None
+         * Correct result: ElectionFormatException, naming the line of a bad
+         * ballot and quoting it
+         */
+        assertLoadFails("A\nB\n", "The file should start with the number of candidates.");
+        assertLoadFails("\n40000\nA\n",
+                        "Too many candidates on line 2: 40000 (at most 32767).");
+        assertLoadFails("3\nA\nB\n", "The file ended after 2 of 3 candidates.");
+        assertLoadFails("2\nA\nB\n1 2\n1 x\n", "Could not parse a ballot on line 5: 1 x");
+        assertLoadFails("2\nA\nB\n1 99999999999\n",
+                        "Could not parse a ballot on line 4: 1 99999999999");
+        assertLoadFails("2\nA\nB\n1 2\n2 1\n1 1\n",
+                        "Invalid ballot on line 6 (duplicate rank: 1): 1 1");
+        assertLoadFails("3\nA\nB\nC\n1 2\n",
+                        "Invalid ballot on line 5 (wrong number of ranks: 2): 1 2");
+    }
+
+    @Test
+    void testWindowBoundaries() throws Exception {
+        /*
+         * Purpose: Test that lines are read whole when the file is mapped in
+         * several windows.  Method: read Initialization: 2,000 random
+         * ballots for 7 candidates with a mix of line endings, so that lines
+         * and CRLF pairs fall across window boundaries.  Parameters: Windows
+         * of 16 to 40 bytes Correct result: The same candidates and ballots
+         * as when the file is mapped in one window
+         */
+        Random random = new Random(1);
+        StringBuilder contents = new StringBuilder("7\nA\nB\nC\nD\nE\nF\nG\n");
+        for (int b = 0; b < 2000; b++) {
+            int[] ranks = {1, 2, 3, 4, 5, 6, 7};
+            for (int c = ranks.length - 1; c > 0; c--) {
+                int other = random.nextInt(c + 1);
+                int swap = ranks[c];
+                ranks[c] = ranks[other];
+                ranks[other] = swap;
+            }
+            for (int c = 0; c < ranks.length; c++) {
+                contents.append(c == 0 ? "" : " ").append(ranks[c]);
+            }
+            contents.append(random.nextBoolean() ? "\n" : "\r\n");
+        }
+        Path file = write(contents.toString());
+        try {
+            RecordingSink whole = new RecordingSink();
+            ElectionLoader.read(file, whole);
+            assertEquals(2000, whole.ballots.size());
+            for (int window = 16; window <= 40; window++) {
+                RecordingSink windowed = new RecordingSink();
+                ElectionLoader.read(file, windowed, window);
+                assertEquals(whole.names, windowed.names);
+                assertEquals(whole.ballots, windowed.ballots);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testLineLongerThanWindow() throws Exception {
+        /*
+         * Purpose: Test a line that does not fit in a mapped window.  Method:
+         * read Initialization: A file whose fourth line is 30 bytes long.
+         * Parameters: A window of 16 bytes Correct result:
+         * ElectionFormatException naming line 4
+         */
+        Path file = write("2\nA\nB\n1                           2\n");
+        try {
+            ElectionFormatException e = assertThrows(ElectionFormatException.class,
+                    () -> ElectionLoader.read(file, new RecordingSink(), 16));
+            assertEquals("Line 4 is too long.", e.getMessage());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void assertLoadFails(String contents, String message)
+            throws IOException {
+        Path file = write(contents);
+        try {
+            ElectionFormatException e = assertThrows(ElectionFormatException.class,
+                                                     () -> ElectionLoader.load(file));
+            assertEquals(message, e.getMessage());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static Path write(String contents) throws IOException {
+        Path file = Files.createTempFile("election", ".txt");
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * Keeps the candidates, and each ballot as the text of its ranks.
+     */
+    private static class RecordingSink implements ElectionSink {
+        final List<String> names = new ArrayList<>();
+        final List<String> ballots = new ArrayList<>();
+
+        @Override
+        public void begin(int numCandidates) {
+        }
+
+        @Override
+        public void addCandidate(String name) {
+            names.add(name);
+        }
+
+        @Override
+        public void addBallot(int[] ranks, int numRanks) {
+            StringBuilder ballot = new StringBuilder();
+            for (int i = 0; i < numRanks; i++) {
+                ballot.append(i == 0 ? "" : " ").append(ranks[i]);
+            }
+            ballots.add(ballot.toString());
+        }
+    }
+}
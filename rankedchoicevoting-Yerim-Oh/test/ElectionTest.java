@@ -0,0 +1,366 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class ElectionTest {
+    // The number of random elections compared in each randomized test.
+    private static final int NUM_ELECTIONS = 500;
+
+    @Test
+    void testBatchEliminationMatchesSingleElimination() {
+        /*
+         * Purpose: Test that eliminating defeated candidates together gives
+         * the same result as eliminating one candidate per round. Method:
+         * setBatchElimination, selectWinner Initialization: Random elections
+         * with 2 to 30 candidates and up to 300 full ballots, with
+         * preferences skewed towards a few popular candidates. Parameters:
+         * None Correct result: The same winner or tied candidates in both
+         * modes
+         */
+        Random random = new Random(12);
+        for (int i = 0; i < NUM_ELECTIONS; i++) {
+            int numCandidates = 2 + random.nextInt(29);
+            List<int[]> ballots = TestElections.randomBallots(random, numCandidates,
+                                                random.nextInt(301), false);
+            assertEquals(winner(numCandidates, ballots, false),
+                         winner(numCandidates, ballots, true),
+                         "election " + i);
+        }
+    }
+
+    @Test
+    void testBatchEliminationMatchesWithPartialBallots() {
+        /*
+         * Purpose: Test batch elimination when ballots become exhausted.
+         * Method: setBatchElimination, selectWinner Initialization: Random
+         * elections in which each voter ranks only some of the candidates.
+         * Parameters: None Correct result: The same winner or tied
+         * candidates in both modes
+         */
+        Random random = new Random(225);
+        for (int i = 0; i < NUM_ELECTIONS; i++) {
+            int numCandidates = 2 + random.nextInt(29);
+            List<int[]> ballots = TestElections.randomBallots(random, numCandidates,
+                                                random.nextInt(301), true);
+            assertEquals(winner(numCandidates, ballots, false),
+                         winner(numCandidates, ballots, true),
+                         "election " + i);
+        }
+    }
+
+    @Test
+    void testBatchEliminationCollapsesLongTail() {
+        /*
+         * Purpose: Test that minor candidates are eliminated in a single
+         * round. Method: setBatchElimination, addRoundListener Initialization:
+         * Two leading candidates with 40 and 35 first preferences and ten
+         * minor candidates with 2 each, whose voters rank the second leader
+         * next. Parameters: None Correct result: The minor candidates are
+         * all eliminated in the first round, and the second leader wins in
+         * the second round
+         */
+        int numCandidates = 12;
+        List<int[]> ballots = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            ballots.add(ranking(numCandidates, 0, 1));
+        }
+        for (int i = 0; i < 35; i++) {
+            ballots.add(ranking(numCandidates, 1, 0));
+        }
+        for (int c = 2; c < numCandidates; c++) {
+            ballots.add(ranking(numCandidates, c, 1));
+            ballots.add(ranking(numCandidates, c, 1));
+        }
+
+        Election election = TestElections.newElection(numCandidates, ballots);
+        election.setBatchElimination(true);
+        RoundRecorder recorder = new RoundRecorder();
+        election.addRoundListener(recorder);
+        List<String> winner = election.selectWinner();
+
+        assertEquals(winner(numCandidates, ballots, false), winner);
+        assertEquals(2, recorder.getReports().size());
+        assertEquals(10, recorder.getReports().get(0).getEliminatedCount());
+        assertEquals(20, recorder.getReports().get(0).getTransferred(1));
+    }
+
+    @Test
+    void testConcurrentAddBallot() throws InterruptedException {
+        /*
+         * Purpose: Test adding ballots from several threads at once.  Method:
+         * addBallot, selectWinner Initialization: 8 threads each add 50,000
+         * random partial ballots for 10 candidates, generated from their own
+         * seed.  Parameters: None Correct result: The first round has every
+         * ballot, the same first preference tallies as the ballots, and the
+         * same winner as adding the ballots on one thread
+         */
+        int numCandidates = 10;
+        int numThreads = 8;
+        int ballotsPerThread = 50000;
+        List<List<int[]>> batches = new ArrayList<>();
+        List<int[]> allBallots = new ArrayList<>();
+        int[] firstPreferences = new int[numCandidates];
+        for (int t = 0; t < numThreads; t++) {
+            List<int[]> batch = TestElections.randomBallots(new Random(t), numCandidates,
+                                              ballotsPerThread, true);
+            batches.add(batch);
+            allBallots.addAll(batch);
+            for (int[] ranks : batch) {
+                for (int c = 0; c < numCandidates; c++) {
+                    if (ranks[c] == 1) {
+                        firstPreferences[c]++;
+                    }
+                }
+            }
+        }
+
+        Election election = TestElections.newElection(numCandidates, new ArrayList<>());
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            List<int[]> batch = batches.get(t);
+            threads[t] = new Thread(() -> {
+                for (int[] ranks : batch) {
+                    election.addBallot(ranks);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        RoundRecorder recorder = new RoundRecorder();
+        election.addRoundListener(recorder);
+        List<String> winner = election.selectWinner();
+
+        RoundReport first = recorder.getReports().get(0);
+        assertEquals(numThreads * ballotsPerThread, first.getContinuingBallots());
+        for (int c = 0; c < numCandidates; c++) {
+            assertEquals(firstPreferences[c], first.getVotes(c));
+        }
+        assertEquals(winner(numCandidates, allBallots, false), winner);
+    }
+
+    @Test
+    void testAddBallotAfterTabulation() {
+        /*
+         * Purpose: Test that ballots cannot be added once the election has
+         * been counted.  Method: addBallot Initialization: An election with
+         * 2 candidates and 1 ballot, after selectWinner.  Parameters: A 
+         * valid ballot Correct result: IllegalStateException
+         */
+        List<int[]> ballots = new ArrayList<>();
+        ballots.add(new int[] {1, 2});
+        Election election = TestElections.newElection(2, ballots);
+        election.selectWinner();
+        assertThrows(IllegalStateException.class, 
+                     () -> election.addBallot(new int[] {2, 1}));
+    }
+
+    @Test
+    void testPoolThreadsAfterTabulation() throws Exception {
+        /*
+         * Purpose: Test that threads which outlive a tabulation, as pool
+         * threads do, are left with no buffer to add to.  Method: addBallot,
+         * selectWinner Initialization: 2 pool threads add 10,000 random 
+         * ballots for 6 candidates, and the election is counted.  Parameters:
+         * A valid ballot added again on each pool thread Correct result: The
+         * same winner as adding the ballots on one thread, and then 
+         * IllegalStateException on each pool thread
+         */
+        List<int[]> ballots = TestElections.randomBallots(new Random(15), 6, 10000, true);
+        Election election = TestElections.newElection(6, new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> added = new ArrayList<>();
+            for (int half = 0; half < 2; half++) {
+                List<int[]> part = ballots.subList(half * 5000, half * 5000 + 5000);
+                added.add(pool.submit(() -> {
+                    for (int[] ranks : part) {
+                        election.addBallot(ranks);
+                    }
+                }));
+            }
+            for (Future<?> future : added) {
+                future.get();
+            }
+            assertEquals(winner(6, ballots, false), election.selectWinner());
+            for (int i = 0; i < 2; i++) {
+                Future<?> late = pool.submit(() -> election.addBallot(ballots.get(0)));
+                ExecutionException e = assertThrows(ExecutionException.class, late::get);
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testRepeatedAndConcurrentTabulation() throws InterruptedException {
+        /*
+         * Purpose: Test that tabulating does not change the ballots, so an
+         * election can be counted again and on several threads at once.
+         * Method: selectWinner Initialization: An election with 8 candidates
+         * and 20,000 random partial ballots, counted once.  Parameters: None
+         * Correct result: A second count, and 4 counts running together, two
+         * of them in parallel, all find the first count's winner
+         */
+        Election election = TestElections.newElection(8,
+                TestElections.randomBallots(new Random(7), 8, 20000, true));
+        List<String> expected = election.selectWinner();
+        assertEquals(expected, election.selectWinner());
+
+        List<List<String>> results = new ArrayList<>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            results.add(null);
+            int slot = t;
+            threads[t] = new Thread(() -> results.set(slot, election.selectWinner()));
+        }
+        election.setParallelism(2);
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (List<String> result : results) {
+            assertEquals(expected, result);
+        }
+    }
+
+    @Test
+    void testParallelRoundsMatchSequentialRounds() {
+        /*
+         * Purpose: Test that counting on several threads goes through the
+         * same rounds as counting on one.  Method: setParallelism,
+         * selectWinner Initialization: 30 random elections with 8 to 40
+         * candidates and 2,000 to 10,000 partial ballots, enough different
+         * rankings for every thread to get 4 shards.  Parameters: 2 to 8
+         * threads, with and without batch elimination Correct result: The
+         * same tallies, eliminations, transfers and exhausted ballots in
+         * every round
+         */
+        Random random = new Random(13);
+        for (int i = 0; i < 30; i++) {
+            int numCandidates = 8 + random.nextInt(33);
+            List<int[]> ballots = TestElections.randomBallots(random, numCandidates,
+                    2000 + random.nextInt(8001), true);
+            int parallelism = 2 + random.nextInt(7);
+            boolean batch = i % 2 == 0;
+
+            Election sequential = TestElections.newElection(numCandidates, ballots);
+            sequential.setBatchElimination(batch);
+            RoundRecorder expected = new RoundRecorder();
+            sequential.addRoundListener(expected);
+            Election parallel = TestElections.newElection(numCandidates, ballots);
+            parallel.setBatchElimination(batch);
+            parallel.setParallelism(parallelism);
+            RoundRecorder actual = new RoundRecorder();
+            parallel.addRoundListener(actual);
+
+            assertEquals(sequential.selectWinner(), parallel.selectWinner(),
+                         "election " + i);
+            assertTrue(parallel.getBallots().size() >= 4 * parallelism);
+            TestElections.assertSameRounds(expected, actual);
+        }
+    }
+
+    @Test
+    void testSelectWinnerExcluding() {
+        /*
+         * Purpose: Test counting as if a candidate had withdrawn.  Method:
+         * selectWinnerExcluding Initialization: 200 random elections with 2
+         * to 7 candidates and complete ballots.  Parameters: Each election's
+         * full count winner Correct result: The same winner as an election
+         * whose ballots have that candidate crossed off, and the full count
+         * is unchanged afterwards
+         */
+        Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            int numCandidates = 2 + random.nextInt(6);
+            List<int[]> ballots = TestElections.randomBallots(random, numCandidates,
+                                                1 + random.nextInt(300), false);
+            Election election = TestElections.newElection(numCandidates, ballots);
+            List<String> full = election.selectWinner();
+            String withdrawn = full.get(0);
+            int c = Integer.parseInt(withdrawn.substring(1));
+            List<int[]> crossedOff = new ArrayList<>();
+            for (int[] ranks : ballots) {
+                crossedOff.add(withoutCandidate(ranks, c));
+            }
+            assertEquals(winner(numCandidates, crossedOff, false),
+                         election.selectWinnerExcluding(withdrawn));
+            assertEquals(full, election.selectWinner());
+        }
+    }
+
+    @Test
+    void testSelectWinnerExcludingUnknownCandidate() {
+        /*
+         * Purpose: Test that only candidates can be left out.  Method:
+         * selectWinnerExcluding Initialization: An election with 2 
+         * candidates and 1 ballot.  Parameters: A name that is not a 
+         * candidate, and both candidates Correct result: 
+         * IllegalArgumentException both times
+         */
+        List<int[]> ballots = new ArrayList<>();
+        ballots.add(new int[] {1, 2});
+        Election election = TestElections.newElection(2, ballots);
+        assertThrows(IllegalArgumentException.class,
+                     () -> election.selectWinnerExcluding("C2"));
+        assertThrows(IllegalArgumentException.class,
+                     () -> election.selectWinnerExcluding("C0", "C1"));
+    }
+
+    /**
+     * Runs an election on a copy of the ballots.
+     * @return the winner or tied candidates
+     */
+    private static List<String> winner(int numCandidates, List<int[]> ballots,
+                                       boolean batch) {
+        Election election = TestElections.newElection(numCandidates, ballots);
+        election.setBatchElimination(batch);
+        return election.selectWinner();
+    }
+
+    /**
+     * @return a ballot whose first choices are the given candidates, in
+     * order, followed by everyone else in ballot order
+     */
+    private static int[] ranking(int numCandidates, int... first) {
+        int[] ranks = new int[numCandidates];
+        int nextRank = 1;
+        for (int c : first) {
+            ranks[c] = nextRank++;
+        }
+        for (int c = 0; c < numCandidates; c++) {
+            if (ranks[c] == 0) {
+                ranks[c] = nextRank++;
+            }
+        }
+        return ranks;
+    }
+
+    /**
+     * @return a copy of a ballot with a candidate's rank removed and the
+     * ranks after it moved up
+     */
+    private static int[] withoutCandidate(int[] ranks, int candidate) {
+        int[] result = ranks.clone();
+        result[candidate] = 0;
+        for (int c = 0; c < ranks.length; c++) {
+            if (ranks[candidate] != 0 && ranks[c] > ranks[candidate]) {
+                result[c]--;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,133 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LiveElectionTest {
+
+    @Test
+    void testProvisionalWinnerBetweenWaves() {
+        /*
+         * Purpose: Test that a provisional result reflects the ballots 
+         * reported so far, and changes as more arrive.  Method: addBallot,
+         * getFirstPreferences, selectProvisionalWinner Initialization: A
+         * first wave of 3 ballots for A and 2 for B, then a second wave of
+         * 4 ballots for B.  Parameters: None Correct result: A leads after
+         * the first wave and B wins after the second
+         */
+        LiveElection election = new LiveElection(2, 2);
+        election.addCandidate("A");
+        election.addCandidate("B");
+        addBallots(election, 3, 1, 2);
+        addBallots(election, 2, 2, 1);
+        assertEquals("[A]", election.selectProvisionalWinner().toString());
+
+        addBallots(election, 4, 2, 1);
+        assertEquals(3, election.getFirstPreferences(0));
+        assertEquals(6, election.getFirstPreferences(1));
+        assertEquals(9, election.getBallotCount());
+        assertEquals("[B]", election.selectProvisionalWinner().toString());
+    }
+
+    @Test
+    void testEarlierSnapshotUnchanged() {
+        /*
+         * Purpose: Test that a snapshot keeps the ballots it was taken with
+         * while later ballots are folded into the same tally.  Method:
+         * snapshot, selectWinner Initialization: 3 ballots for A and 2 for
+         * B, a snapshot, then 4 more ballots for B and 1 for C.  Parameters:
+         * None Correct result: The first snapshot still counts 5 ballots and
+         * elects A, and a second snapshot counts 10 and elects B
+         */
+        LiveElection election = new LiveElection(3, 2);
+        election.addCandidate("A");
+        election.addCandidate("B");
+        election.addCandidate("C");
+        addBallots(election, 3, 1, 2, 3);
+        addBallots(election, 2, 2, 1, 3);
+        Election first = election.snapshot();
+
+        addBallots(election, 4, 2, 1, 3);
+        addBallots(election, 1, 2, 3, 1);
+        Election second = election.snapshot();
+        RoundRecorder firstRounds = new RoundRecorder();
+        first.addRoundListener(firstRounds);
+        assertEquals("[A]", first.selectWinner().toString());
+        assertEquals(5, firstRounds.getReports().get(0).getContinuingBallots());
+        RoundRecorder secondRounds = new RoundRecorder();
+        second.addRoundListener(secondRounds);
+        assertEquals("[B]", second.selectWinner().toString());
+        assertEquals(10, secondRounds.getReports().get(0).getContinuingBallots());
+    }
+
+    @Test
+    void testConcurrentReporting() throws InterruptedException {
+        /*
+         * Purpose: Test ballots reported from several threads at once while
+         * provisional results are taken.  Method: addBallot, 
+         * getFirstPreferences, snapshot Initialization: 8 threads each add
+         * 20,000 random ballots for 6 candidates, generated from their own
+         * seed, while the main thread takes snapshots.  Parameters: None
+         * Correct result: The first preference counts and the winner match
+         * an Election given the same ballots on one thread
+         */
+        int numCandidates = 6;
+        int numThreads = 8;
+        int ballotsPerThread = 20000;
+        LiveElection live = new LiveElection(numCandidates, 4);
+        Election expected = new Election(numCandidates);
+        for (int c = 0; c < numCandidates; c++) {
+            live.addCandidate("C" + c);
+            expected.addCandidate("C" + c);
+        }
+        long[] firstPreferences = new long[numCandidates];
+        for (int t = 0; t < numThreads; t++) {
+            Random random = new Random(t);
+            for (int b = 0; b < ballotsPerThread; b++) {
+                int[] ranks = TestElections.randomBallot(random, numCandidates);
+                expected.addBallot(ranks);
+                firstPreferences[firstChoice(ranks)]++;
+            }
+        }
+
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            int seed = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int b = 0; b < ballotsPerThread; b++) {
+                    live.addBallot(TestElections.randomBallot(random, numCandidates));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                assertTrue(live.snapshot().selectWinner().size() >= 1);
+            }
+            thread.join();
+        }
+        assertEquals((long) numThreads * ballotsPerThread, live.getBallotCount());
+
+        for (int c = 0; c < numCandidates; c++) {
+            assertEquals(firstPreferences[c], live.getFirstPreferences(c));
+        }
+        assertEquals(expected.selectWinner(), live.selectProvisionalWinner());
+    }
+
+    private static void addBallots(LiveElection election, int count, int... ranks) {
+        for (int i = 0; i < count; i++) {
+            election.addBallot(ranks);
+        }
+    }
+
+    private static int firstChoice(int[] ranks) {
+        for (int c = 0; c < ranks.length; c++) {
+            if (ranks[c] == 1) {
+                return c;
+            }
+        }
+        return -1;
+    }
+}
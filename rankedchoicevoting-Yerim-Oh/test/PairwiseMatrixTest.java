@@ -0,0 +1,90 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PairwiseMatrixTest {
+
+    @Test
+    void testMatchesRankComparison() {
+        /*
+         * Purpose: Test the counts against a direct comparison of ranks.
+         * Method: getPreferring Initialization: 20 random elections with 2
+         * to 12 candidates and up to 20,000 partial ballots.  Parameters:
+         * Every pair of candidates, counted on 1 and 4 threads Correct
+         * result: For every pair a, b, the number of ballots on which a has
+         * a rank and b has a later rank or none
+         */
+        Random random = new Random(20);
+        for (int i = 0; i < 20; i++) {
+            int numCandidates = 2 + random.nextInt(11);
+            List<int[]> ballots = TestElections.randomBallots(random, numCandidates,
+                    1 + random.nextInt(20000), true);
+            int[][] expected = new int[numCandidates][numCandidates];
+            for (int[] ranks : ballots) {
+                for (int a = 0; a < numCandidates; a++) {
+                    for (int b = 0; b < numCandidates; b++) {
+                        if (ranks[a] != 0 && (ranks[b] == 0 || ranks[a] < ranks[b])) {
+                            expected[a][b]++;
+                        }
+                    }
+                }
+            }
+            for (int threads : new int[] {1, 4}) {
+                PairwiseMatrix matrix = new PairwiseMatrix(
+                        TestElections.newElection(numCandidates, ballots), threads);
+                for (int a = 0; a < numCandidates; a++) {
+                    for (int b = 0; b < numCandidates; b++) {
+                        assertEquals(expected[a][b], matrix.getPreferring(a, b));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCondorcetWinner() {
+        /*
+         * Purpose: Test finding a Condorcet winner who loses the ranked
+         * choice count.  Method: getCondorcetWinner, getSmithSet
+         * Initialization: 4 ballots A > B > C, 3 ballots C > B > A and 2
+         * ballots B > C > A.  Parameters: None Correct result: B beats A 5 to
+         * 4 and C 6 to 3, so B is the Condorcet winner and the whole Smith
+         * set, though ranked choice voting eliminates B first and C wins
+         */
+        Election election = TestElections.newElection("A", "B", "C");
+        TestElections.addBallots(election, 4, 1, 2, 3);
+        TestElections.addBallots(election, 3, 3, 2, 1);
+        TestElections.addBallots(election, 2, 3, 1, 2);
+        PairwiseMatrix matrix = new PairwiseMatrix(election, 1);
+        assertEquals(5, matrix.getPreferring(1, 0));
+        assertEquals(4, matrix.getPreferring(0, 1));
+        assertTrue(matrix.beats(1, 2));
+        assertEquals("B", matrix.getCondorcetWinner());
+        assertEquals(Arrays.asList("B"), matrix.getSmithSet());
+        assertEquals(Arrays.asList("C"), election.selectWinner());
+    }
+
+    @Test
+    void testSmithSetCycle() {
+        /*
+         * Purpose: Test the Smith set when there is a cycle.  Method:
+         * getCondorcetWinner, getSmithSet Initialization: A > B > C > D,
+         * B > C > A > D and C > A > B > D, one ballot each, and 2 ballots
+         * that rank only D.  Parameters: None Correct result: A beats B, B
+         * beats C and C beats A, and all three beat D 3 to 2, so there is no
+         * Condorcet winner and the Smith set is A, B and C
+         */
+        Election election = TestElections.newElection("A", "B", "C", "D");
+        TestElections.addBallots(election, 1, 1, 2, 3, 4);
+        TestElections.addBallots(election, 1, 3, 1, 2, 4);
+        TestElections.addBallots(election, 1, 2, 3, 1, 4);
+        TestElections.addBallots(election, 2, 0, 0, 0, 1);
+        PairwiseMatrix matrix = new PairwiseMatrix(election, 1);
+        assertNull(matrix.getCondorcetWinner());
+        assertEquals(Arrays.asList("A", "B", "C"), matrix.getSmithSet());
+    }
+}
@@ -0,0 +1,99 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class RoundRecorderTest {
+
+    /**
+     * Counts an election in three rounds.  In round 1, 'Say "Hi"' has 5
+     * votes, 'Smith, J' 4 and the two candidates named B 3 and 2.  The
+     * second B is eliminated and both of its ballots are exhausted.  The
+     * first B is eliminated in round 2 and its 3 ballots go to 'Say "Hi"',
+     * who wins round 3 with 8 votes.
+     * @return the recorder that saw the count
+     */
+    private static RoundRecorder recordElection() {
+        Election election = TestElections.newElection("Say \"Hi\"", "Smith, J",
+                                                      "B", "B");
+        TestElections.addBallots(election, 5, 1, 2, 3, 4);
+        TestElections.addBallots(election, 4, 3, 1, 2, 4);
+        TestElections.addBallots(election, 3, 2, 3, 1, 4);
+        TestElections.addBallots(election, 2, 0, 0, 0, 1);
+        RoundRecorder recorder = new RoundRecorder();
+        election.addRoundListener(recorder);
+        election.selectWinner();
+        return recorder;
+    }
+
+    @Test
+    void testJson() throws IOException {
+        /*
+         * Purpose: Test the JSON export of a count.  Method: writeJson
+         * Initialization: The three round election of recordElection, with
+         * a quote and a comma in two names and two candidates named B.
+         * Parameters: None Correct result: Every round with each
+         * candidate's index and escaped name, and separate tallies for the
+         * two candidates named B.  The timings are not compared.
+         */
+        StringBuilder json = new StringBuilder();
+        recordElection().writeJson(json);
+        String expected = "{\"rounds\":["
+            + "{\"round\":1,\"continuing\":14,\"votes\":["
+            + "{\"candidate\":0,\"name\":\"Say \\\"Hi\\\"\",\"votes\":5},"
+            + "{\"candidate\":1,\"name\":\"Smith, J\",\"votes\":4},"
+            + "{\"candidate\":2,\"name\":\"B\",\"votes\":3},"
+            + "{\"candidate\":3,\"name\":\"B\",\"votes\":2}],"
+            + "\"eliminated\":[{\"candidate\":3,\"name\":\"B\"}],"
+            + "\"transferred\":[],\"exhausted\":2,\"totalExhausted\":2,"
+            + "\"transferNanos\":0,\"roundNanos\":0},"
+            + "{\"round\":2,\"continuing\":12,\"votes\":["
+            + "{\"candidate\":0,\"name\":\"Say \\\"Hi\\\"\",\"votes\":5},"
+            + "{\"candidate\":1,\"name\":\"Smith, J\",\"votes\":4},"
+            + "{\"candidate\":2,\"name\":\"B\",\"votes\":3},"
+            + "{\"candidate\":3,\"name\":\"B\",\"votes\":0}],"
+            + "\"eliminated\":[{\"candidate\":2,\"name\":\"B\"}],"
+            + "\"transferred\":[{\"candidate\":0,\"name\":\"Say \\\"Hi\\\"\","
+            + "\"votes\":3}],\"exhausted\":0,\"totalExhausted\":2,"
+            + "\"transferNanos\":0,\"roundNanos\":0},"
+            + "{\"round\":3,\"continuing\":12,\"votes\":["
+            + "{\"candidate\":0,\"name\":\"Say \\\"Hi\\\"\",\"votes\":8},"
+            + "{\"candidate\":1,\"name\":\"Smith, J\",\"votes\":4},"
+            + "{\"candidate\":2,\"name\":\"B\",\"votes\":0},"
+            + "{\"candidate\":3,\"name\":\"B\",\"votes\":0}],"
+            + "\"eliminated\":[],\"transferred\":[],\"exhausted\":0,"
+            + "\"totalExhausted\":2,\"transferNanos\":0,\"roundNanos\":0}"
+            + "]}\n";
+        assertEquals(expected, json.toString()
+                     .replaceAll("\"(transfer|round)Nanos\":\\d+", "\"$1Nanos\":0"));
+    }
+
+    @Test
+    void testCsv() throws IOException {
+        /*
+         * Purpose: Test the CSV export of a count.  Method: writeCsv
+         * Initialization: The three round election of recordElection.
+         * Parameters: None Correct result: A header and one line for each
+         * candidate in each round, with the names holding a quote or a comma
+         * quoted.  The timings are not compared.
+         */
+        StringBuilder csv = new StringBuilder();
+        recordElection().writeCsv(csv);
+        String expected = "round,candidate,votes,transferred,eliminated,exhausted,"
+            + "total_exhausted,continuing,transfer_nanos,round_nanos\n"
+            + "1,\"Say \"\"Hi\"\"\",5,0,false,2,2,14,0,0\n"
+            + "1,\"Smith, J\",4,0,false,2,2,14,0,0\n"
+            + "1,B,3,0,false,2,2,14,0,0\n"
+            + "1,B,2,0,true,2,2,14,0,0\n"
+            + "2,\"Say \"\"Hi\"\"\",5,3,false,0,2,12,0,0\n"
+            + "2,\"Smith, J\",4,0,false,0,2,12,0,0\n"
+            + "2,B,3,0,true,0,2,12,0,0\n"
+            + "2,B,0,0,false,0,2,12,0,0\n"
+            + "3,\"Say \"\"Hi\"\"\",8,0,false,0,2,12,0,0\n"
+            + "3,\"Smith, J\",4,0,false,0,2,12,0,0\n"
+            + "3,B,0,0,false,0,2,12,0,0\n"
+            + "3,B,0,0,false,0,2,12,0,0\n";
+        assertEquals(expected, csv.toString().replaceAll(",\\d+,\\d+\n", ",0,0\n"));
+    }
+}
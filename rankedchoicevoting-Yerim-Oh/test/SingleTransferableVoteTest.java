@@ -0,0 +1,101 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SingleTransferableVoteTest {
+
+    @Test
+    void testSurplusTransfer() {
+        /*
+         * Purpose: Test that a surplus is transferred at a fractional value.
+         * Method: selectWinners Initialization: 2 seats and 12 ballots, so
+         * the quota is 5.  A has 8 first preferences, 6 of them going to B
+         * next and 2 to C.  C has 3 and B has 1.  Parameters: 2 seats
+         * Correct result: A is elected with a surplus of 3, which gives B
+         * 6 * 3/8 and C 2 * 3/8 votes.  B then has 3.25 votes and C 3.75, so
+         * B is eliminated and C takes the last seat.
+         */
+        Election election = TestElections.newElection("A", "B", "C");
+        TestElections.addBallots(election, 6, 1, 2, 0);
+        TestElections.addBallots(election, 2, 1, 0, 2);
+        TestElections.addBallots(election, 3, 0, 0, 1);
+        TestElections.addBallots(election, 1, 0, 1, 0);
+        assertEquals(Arrays.asList("A", "C"), election.selectWinners(2));
+    }
+
+    @Test
+    void testSurplusElectsNextCandidate() {
+        /*
+         * Purpose: Test that a surplus transfer can elect another candidate.
+         * Method: selectWinners Initialization: 2 seats and 30 ballots, so
+         * the quota is 11.  A has 20 first preferences, all going to B next.
+         * B has 6, C has 4.  Parameters: 2 seats Correct result: A's surplus
+         * of 9 takes B to 15 votes, so B is elected before anyone is
+         * eliminated.
+         */
+        Election election = TestElections.newElection("A", "B", "C");
+        TestElections.addBallots(election, 20, 1, 2, 3);
+        TestElections.addBallots(election, 6, 2, 1, 3);
+        TestElections.addBallots(election, 4, 3, 2, 1);
+        assertEquals(Arrays.asList("A", "B"), election.selectWinners(2));
+    }
+
+    @Test
+    void testMoreSeatsThanCandidates() {
+        /*
+         * Purpose: Test that every candidate is elected when there are not
+         * enough candidates to fill the seats.  Method: selectWinners
+         * Initialization: 2 candidates and 3 ballots Parameters: 3 seats
+         * Correct result: Both candidates, the one with more votes first
+         */
+        Election election = TestElections.newElection("A", "B");
+        TestElections.addBallots(election, 1, 1, 2);
+        TestElections.addBallots(election, 2, 2, 1);
+        assertEquals(Arrays.asList("B", "A"), election.selectWinners(3));
+    }
+
+    @Test
+    void testOneSeatMatchesSelectWinner() {
+        /*
+         * Purpose: Test that a single seat count gives the same winner as 
+         * ranked choice voting.  With complete ballots the Droop quota is a
+         * majority.  Method: selectWinners, selectWinner Initialization: 500
+         * random elections with 2 to 12 candidates.  Elections that end in 
+         * a tie are skipped, because a tie is broken by elimination in a 
+         * single transferable vote count.  Parameters: 1 seat Correct 
+         * result: The same winner
+         */
+        Random random = new Random(13);
+        for (int i = 0; i < 500; i++) {
+            int numCandidates = 2 + random.nextInt(11);
+            int[][] ballots = new int[1 + random.nextInt(200)][];
+            for (int b = 0; b < ballots.length; b++) {
+                ballots[b] = TestElections.randomBallot(random, numCandidates);
+            }
+            Election rankedChoice = 
+                    TestElections.newElection(numCandidates, Arrays.asList(ballots));
+            Election transferable = 
+                    TestElections.newElection(numCandidates, Arrays.asList(ballots));
+            List<String> winner = rankedChoice.selectWinner();
+            if (winner.size() == 1) {
+                assertEquals(winner, transferable.selectWinners(1), "election " + i);
+            }
+        }
+    }
+
+    @Test
+    void testNoSeats() {
+        /*
+         * Purpose: Test that a count needs at least one seat.  Method: 
+         * selectWinners Initialization: An election with 2 candidates
+         * Parameters: 0 seats Correct result: IllegalArgumentException
+         */
+        Election election = TestElections.newElection("A", "B");
+        assertThrows(IllegalArgumentException.class, 
+                     () -> election.selectWinners(0));
+    }
+}
@@ -0,0 +1,136 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the elections and ballots that the tests share.
+ */
+final class TestElections {
+
+    private TestElections() {
+    }
+
+    /**
+     * @return an election with the named candidates and no ballots
+     */
+    static Election newElection(String... names) {
+        Election election = new Election(names.length);
+        for (String name : names) {
+            election.addCandidate(name);
+        }
+        return election;
+    }
+
+    /**
+     * @return an election with candidates C0, C1, ... and the given ballots
+     */
+    static Election newElection(int numCandidates, List<int[]> ballots) {
+        Election election = new Election(numCandidates);
+        for (int c = 0; c < numCandidates; c++) {
+            election.addCandidate("C" + c);
+        }
+        for (int[] ballot : ballots) {
+            election.addBallot(ballot);
+        }
+        return election;
+    }
+
+    /**
+     * The tied election has 15 ballots.  In round 1, A has 7 votes, B 4, C 3
+     * and D 1.  D's ballot goes to C, so B and C are tied with 4 votes in
+     * round 2.  B's ballots go to C next and C's go to A, so C wins if B is
+     * eliminated and A wins if C is.
+     * @return the tied election, broken by a strategy
+     */
+    static Election newTiedElection(TieBreakStrategy tieBreak) {
+        Election election = newElection("A", "B", "C", "D");
+        addBallots(election, 7, 1, 2, 3, 4);
+        addBallots(election, 4, 3, 1, 2, 4);
+        addBallots(election, 3, 2, 3, 1, 4);
+        addBallots(election, 1, 3, 4, 2, 1);
+        election.setTieBreakStrategy(tieBreak);
+        return election;
+    }
+
+    static void addBallots(Election election, int count, int... ranks) {
+        for (int i = 0; i < count; i++) {
+            election.addBallot(ranks);
+        }
+    }
+
+    /**
+     * @return a random permutation of the ranks 1 to numCandidates
+     */
+    static int[] randomBallot(Random random, int numCandidates) {
+        int[] ranks = new int[numCandidates];
+        for (int c = 0; c < numCandidates; c++) {
+            ranks[c] = c + 1;
+        }
+        for (int c = numCandidates - 1; c > 0; c--) {
+            int other = random.nextInt(c + 1);
+            int swap = ranks[c];
+            ranks[c] = ranks[other];
+            ranks[other] = swap;
+        }
+        return ranks;
+    }
+
+    /**
+     * Draws ballots in which candidate c is preferred with a weight of
+     * 1 / (c + 1), so lower numbered candidates collect most of the votes.
+     * @param partial true to let each voter rank only some candidates
+     */
+    static List<int[]> randomBallots(Random random, int numCandidates,
+                                     int numBallots, boolean partial) {
+        List<int[]> ballots = new ArrayList<>();
+        double[] keys = new double[numCandidates];
+        for (int b = 0; b < numBallots; b++) {
+            for (int c = 0; c < numCandidates; c++) {
+                keys[c] = -Math.log(1.0 - random.nextDouble()) * (c + 1);
+            }
+            int numRanked = partial ? 1 + random.nextInt(numCandidates)
+                                    : numCandidates;
+            int[] ranks = new int[numCandidates];
+            for (int c = 0; c < numCandidates; c++) {
+                int rank = 1;
+                for (int other = 0; other < numCandidates; other++) {
+                    if (keys[other] < keys[c]) {
+                        rank++;
+                    }
+                }
+                ranks[c] = rank <= numRanked ? rank : 0;
+            }
+            ballots.add(ranks);
+        }
+        return ballots;
+    }
+
+    /**
+     * Asserts that two tabulations went through the same rounds: the same
+     * tallies, eliminations, transfers and exhausted ballots in each.  Only
+     * the timings may differ.
+     */
+    static void assertSameRounds(RoundRecorder expected, RoundRecorder actual) {
+        assertEquals(expected.getReports().size(), actual.getReports().size());
+        for (int r = 0; r < expected.getReports().size(); r++) {
+            RoundReport e = expected.getReports().get(r);
+            RoundReport a = actual.getReports().get(r);
+            String round = "round " + e.getRound();
+            assertEquals(e.getRound(), a.getRound());
+            assertEquals(e.getContinuingBallots(), a.getContinuingBallots(), round);
+            assertEquals(e.getExhaustedBallots(), a.getExhaustedBallots(), round);
+            assertEquals(e.getTotalExhaustedBallots(), a.getTotalExhaustedBallots(),
+                         round);
+            assertEquals(e.getEliminatedCount(), a.getEliminatedCount(), round);
+            for (int i = 0; i < e.getEliminatedCount(); i++) {
+                assertEquals(e.getEliminated(i), a.getEliminated(i), round);
+            }
+            for (int c = 0; c < e.getCandidateCount(); c++) {
+                assertEquals(e.getVotes(c), a.getVotes(c), round);
+                assertEquals(e.getTransferred(c), a.getTransferred(c), round);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class TieBreakStrategyTest {
+
+    @Test
+    void testBallotOrder() {
+        /*
+         * Purpose: Test the default tie break.  Method: selectWinner 
+         * Initialization: The test election with no strategy.  Parameters:
+         * None Correct result: B, who is listed before C, is eliminated, 
+         * so C wins
+         */
+        assertEquals(Arrays.asList("C"), 
+                     TestElections.newTiedElection(null).selectWinner());
+    }
+
+    @Test
+    void testLookback() {
+        /*
+         * Purpose: Test breaking a tie by looking at earlier rounds.  Method:
+         * selectWinner Initialization: The test election with a 
+         * LookbackTieBreak.  Parameters: None Correct result: C had fewer
+         * votes than B in round 1, so C is eliminated and A wins
+         */
+        Election election = TestElections.newTiedElection(new LookbackTieBreak());
+        RoundRecorder recorder = new RoundRecorder();
+        election.addRoundListener(recorder);
+        assertEquals(Arrays.asList("A"), election.selectWinner());
+        assertEquals("C", recorder.getReports().get(1).getEliminatedName(0));
+    }
+
+    @Test
+    void testLookbackHistory() {
+        /*
+         * Purpose: Test narrowing a tie round by round.  Method: choose 
+         * Initialization: A history of three rounds for candidates 0 to 3.
+         * Candidates 1, 2 and 3 are tied in the latest round, 2 and 3 had 
+         * the fewest votes in the round before, and 3 had fewer than 2 in
+         * the first.  Parameters: The tied candidates 1, 2 and 3 Correct 
+         * result: Candidate 3, then candidate 2 once 2 and 3 are also tied
+         * in the first round
+         */
+        TallyHistory history = new TallyHistory(4);
+        history.record(new int[] {9, 3, 2, 1});
+        history.record(new int[] {9, 4, 3, 3});
+        history.record(new int[] {9, 5, 5, 5});
+        int[] tied = {1, 2, 3};
+        assertArrayEquals(new int[] {3}, new LookbackTieBreak().choose(tied, 3, history));
+
+        TallyHistory even = new TallyHistory(4);
+        even.record(new int[] {9, 3, 2, 2});
+        even.record(new int[] {9, 5, 5, 5});
+        assertArrayEquals(new int[] {2}, new LookbackTieBreak().choose(tied, 2, even));
+    }
+
+    @Test
+    void testEliminateAllTied() {
+        /*
+         * Purpose: Test eliminating every tied candidate at once.  Method:
+         * selectWinner Initialization: The test election with an 
+         * EliminateAllTiedTieBreak.  Parameters: None Correct result: B and
+         * C are eliminated together in round 2, and A wins in round 3 with
+         * all 15 votes
+         */
+        Election election = TestElections.newTiedElection(new EliminateAllTiedTieBreak());
+        RoundRecorder recorder = new RoundRecorder();
+        election.addRoundListener(recorder);
+        assertEquals(Arrays.asList("A"), election.selectWinner());
+        assertEquals(3, recorder.getReports().size());
+        assertEquals(2, recorder.getReports().get(1).getEliminatedCount());
+        assertEquals(15, recorder.getReports().get(2).getVotes(0));
+    }
+
+    @Test
+    void testRandom() {
+        /*
+         * Purpose: Test that random tie breaks are repeatable and can go
+         * either way.  Method: selectWinner Initialization: The test 
+         * election with a RandomTieBreak.  Parameters: Seeds 0 to 19 
+         * Correct result: The same seed always gives the same winner, and
+         * both A and C win for some seed
+         */
+        Set<String> winners = new HashSet<>();
+        for (long seed = 0; seed < 20; seed++) {
+            String winner = TestElections.newTiedElection(new RandomTieBreak(seed))
+                                         .selectWinner().get(0);
+            assertEquals(winner, TestElections.newTiedElection(new RandomTieBreak(seed))
+                                              .selectWinner().get(0));
+            winners.add(winner);
+        }
+        assertEquals(new HashSet<>(Arrays.asList("A", "C")), winners);
+    }
+
+    @Test
+    void testRandomRepeatsOnSameElection() throws InterruptedException {
+        /*
+         * Purpose: Test that one RandomTieBreak gives every tabulation of an
+         * election the same draws.  Method: selectWinner Initialization: The
+         * test election with a RandomTieBreak, tabulated three times in turn
+         * and then on 4 threads at once.  Parameters: Seeds 0 to 19 Correct
+         * result: Every tabulation of an election has the same winner
+         */
+        for (long seed = 0; seed < 20; seed++) {
+            Election election = TestElections.newTiedElection(new RandomTieBreak(seed));
+            List<String> winner = election.selectWinner();
+            for (int i = 0; i < 2; i++) {
+                assertEquals(winner, election.selectWinner());
+            }
+            List<List<String>> winners = Collections.synchronizedList(new ArrayList<>());
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(() -> winners.add(election.selectWinner()));
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(Collections.nCopies(threads.length, winner), winners);
+        }
+    }
+
+    @Test
+    void testUntiedChoice() {
+        /*
+         * Purpose: Test that a strategy must choose one of the tied 
+         * candidates.  Method: selectWinner Initialization: The test 
+         * election with a strategy that chooses A.  Parameters: None
+         * Correct result: IllegalStateException
+         */
+        Election election = 
+                TestElections.newTiedElection((tied, round, history) -> new int[] {0});
+        assertThrows(IllegalStateException.class, election::selectWinner);
+    }
+}
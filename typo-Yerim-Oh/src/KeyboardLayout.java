@@ -0,0 +1,229 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A keyboard layout, read from a text grid of its rows of keys, that can be
+ * compiled into a table of corrections for hands that drifted in any
+ * direction.
+ *
+ * The grid gives each row of keys as two lines: the characters the keys
+ * type without shift, then the characters they type with shift.  The
+ * column of a character in its line is the column of its key, so rows are
+ * indented with spaces to line the keys up with the rows above and below,
+ * and a space is a position with no key.  Blank lines and lines starting
+ * with # are skipped.  For example, the first two rows of QWERTY are
+ *
+ *     `1234567890-=
+ *     ~!@#$%^&*()_+
+ *      qwertyuiop[]\
+ *      QWERTYUIOP{}|
+ *
+ * A compiled table has an entry for every char, so correcting a character
+ * is a single array read.  Each table is compiled the first time it is
+ * asked for and then kept, so asking again costs nothing.
+ */
+public class KeyboardLayout {
+    /**
+     * The direction the hands drifted in.  A key typed with drifted hands is
+     * the intended key moved in that direction, so the correction moves it
+     * back the other way.
+     */
+    public enum Drift {
+        LEFT(0, -1), RIGHT(0, 1), UP(-1, 0), DOWN(1, 0);
+
+        // How far one step of drift moves a key, in rows and columns.
+        final int rows;
+        final int columns;
+
+        Drift(int rows, int columns) {
+            this.rows = rows;
+            this.columns = columns;
+        }
+    }
+
+    // The grids of the layouts that are built in, by lower case name.
+    static final Map<String, String> BUILT_IN = new ConcurrentHashMap<>();
+    static {
+        BUILT_IN.put("qwerty", String.join("\n",
+                "`1234567890-=",
+                "~!@#$%^&*()_+",
+                " qwertyuiop[]\\",
+                " QWERTYUIOP{}|",
+                " asdfghjkl;'",
+                " ASDFGHJKL:\"",
+                " zxcvbnm,./",
+                " ZXCVBNM<>?"));
+        BUILT_IN.put("azerty", String.join("\n",
+                "\u00b2&\u00e9\"'(-\u00e8_\u00e7\u00e0)=",
+                " 1234567890\u00b0+",
+                " azertyuiop^$",
+                " AZERTYUIOP\u00a8\u00a3",
+                " qsdfghjklm\u00f9*",
+                " QSDFGHJKLM%\u00b5",
+                "<wxcvbn,;:!",
+                ">WXCVBN?./\u00a7"));
+        BUILT_IN.put("dvorak", String.join("\n",
+                "`1234567890[]",
+                "~!@#$%^&*(){}",
+                " ',.pyfgcrl/=\\",
+                " \"<>PYFGCRL?+|",
+                " aoeuidhtns-",
+                " AOEUIDHTNS_",
+                " ;qjkxbmwvz",
+                " :QJKXBMWVZ"));
+        BUILT_IN.put("colemak", String.join("\n",
+                "`1234567890-=",
+                "~!@#$%^&*()_+",
+                " qwfpgjluy;[]\\",
+                " QWFPGJLUY:{}|",
+                " arstdhneio'",
+                " ARSTDHNEIO\"",
+                " zxcvbkm,./",
+                " ZXCVBKM<>?"));
+    }
+
+    // The layouts made so far, by lower case name, so that each is only
+    // parsed and compiled once.
+    private static final Map<String, KeyboardLayout> layouts = new ConcurrentHashMap<>();
+
+    // The layout's name.
+    private final String name;
+
+    // keys[level][row] is the characters typed on a row without shift, for
+    // level 0, or with shift, for level 1.  A space is a position with no
+    // key.
+    private final char[][][] keys;
+
+    // The compiled tables, by drift and distance.
+    private final Map<String, char[]> tables = new ConcurrentHashMap<>();
+
+    /**
+     * Create a layout from its grid.
+     * @param name the layout's name
+     * @param lines the lines of the grid
+     * @throws IllegalArgumentException if a row has no line for shift, or a
+     * character is on more than one key
+     */
+    public KeyboardLayout(String name, List<String> lines) {
+        this.name = name;
+        List<String> rows = new ArrayList<>();
+        for (String line : lines) {
+            if (!line.trim().isEmpty() && !line.startsWith("#")) {
+                rows.add(line);
+            }
+        }
+        if (rows.size() % 2 != 0) {
+            throw new IllegalArgumentException("Layout " + name
+                    + " has a row with no line for shift");
+        }
+        keys = new char[2][rows.size() / 2][];
+        boolean[] seen = new boolean[Character.MAX_VALUE + 1];
+        for (int i = 0; i < rows.size(); i++) {
+            char[] row = rows.get(i).toCharArray();
+            keys[i % 2][i / 2] = row;
+            for (char ch : row) {
+                if (ch != ' ') {
+                    if (seen[ch]) {
+                        throw new IllegalArgumentException("Layout " + name
+                                + " has " + ch + " on more than one key");
+                    }
+                    seen[ch] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Find a layout by name, or read it from a file.
+     * @param nameOrFile qwerty, azerty, dvorak or colemak, in any case, or
+     * the name of a file holding a grid
+     * @return the layout, which is the same object each time it is asked for
+     * @throws IOException if the layout is not built in and the file cannot
+     * be read
+     * @throws IllegalArgumentException if the grid is not valid
+     */
+    public static KeyboardLayout forName(String nameOrFile) throws IOException {
+        String key = nameOrFile.toLowerCase(Locale.ROOT);
+        KeyboardLayout layout = layouts.get(key);
+        if (layout == null) {
+            String grid = BUILT_IN.get(key);
+            if (grid != null) {
+                layout = new KeyboardLayout(key, Arrays.asList(grid.split("\n")));
+            }
+            else {
+                Path file = Paths.get(nameOrFile);
+                layout = new KeyboardLayout(file.getFileName().toString(),
+                        Files.readAllLines(file, StandardCharsets.UTF_8));
+            }
+            KeyboardLayout existing = layouts.putIfAbsent(key, layout);
+            if (existing != null) {
+                layout = existing;
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * @return the layout's name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the table of corrections for hands that drifted.
+     * @param drift the direction the hands drifted in
+     * @param distance how many keys they drifted by, at least 1
+     * @return for each char, the char that was intended.  Characters on keys
+     * with no key where the intended key would be, and characters that are
+     * not on the keyboard, map to themselves.  The table is shared and must
+     * not be changed.
+     */
+    public char[] corrections(Drift drift, int distance) {
+        if (distance < 1) {
+            throw new IllegalArgumentException("The distance must be at least 1");
+        }
+        return tables.computeIfAbsent(drift + " " + distance,
+                                      k -> compile(drift, distance));
+    }
+
+    private char[] compile(Drift drift, int distance) {
+        char[] table = new char[Character.MAX_VALUE + 1];
+        for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+            table[ch] = (char) ch;
+        }
+        for (char[][] level : keys) {
+            for (int row = 0; row < level.length; row++) {
+                for (int column = 0; column < level[row].length; column++) {
+                    char typed = level[row][column];
+                    char intended = keyAt(level, row - drift.rows * distance,
+                                          column - drift.columns * distance);
+                    if (typed != ' ' && intended != ' ') {
+                        table[typed] = intended;
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @return the character at a position in a level of the grid, or a space
+     * if there is no key there
+     */
+    private static char keyAt(char[][] level, int row, int column) {
+        if (row < 0 || row >= level.length || column < 0 || column >= level[row].length) {
+            return ' ';
+        }
+        return level[row][column];
+    }
+}
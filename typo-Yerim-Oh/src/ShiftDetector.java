@@ -0,0 +1,276 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Works out how far and in which direction the hands drifted, by correcting
+ * a sample of the text for every likely drift and counting how many of the
+ * letters that come out are in dictionary words.  The drift whose
+ * correction puts the most letters in dictionary words wins.  Counting
+ * letters rather than words keeps a wrong drift that breaks the text into
+ * lots of one and two letter pieces, which are often words, from winning.
+ *
+ * The drifts tried are left, right, up and down, by one or two keys.  The
+ * sample is split once into its different pieces between spaces, and each
+ * drift corrects each different piece through its compiled table, hashing
+ * each word as it goes and looking the hash up in a WordSet.  A megabyte
+ * of text is scored in a few milliseconds, or a few tens of milliseconds
+ * if nearly every piece is different.
+ */
+public class ShiftDetector {
+    /** The number of bytes read from the start of a file to detect from. */
+    public static final int SAMPLE_SIZE = 1 << 20;
+
+    // The largest number of keys the hands are assumed to have drifted.
+    private static final int MAX_DISTANCE = 2;
+
+    // For each char, the char in lower case if it is a letter, or 0 if it
+    // is not, so the scoring loop needs no calls to Character.
+    private static final char[] LETTERS = new char[Character.MAX_VALUE + 1];
+    static {
+        for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+            if (Character.isLetter(ch)) {
+                LETTERS[ch] = (char) Character.toLowerCase(ch);
+            }
+        }
+    }
+
+    /**
+     * A drift and how well it corrected the sample.
+     */
+    public static class Shift {
+        private final KeyboardLayout.Drift drift;
+        private final int distance;
+        private final int hits;
+        private final double hitRate;
+
+        Shift(KeyboardLayout.Drift drift, int distance, int hits, int letters) {
+            this.drift = drift;
+            this.distance = distance;
+            this.hits = hits;
+            this.hitRate = letters == 0 ? 0 : (double) hits / letters;
+        }
+
+        /**
+         * @return the direction the hands drifted
+         */
+        public KeyboardLayout.Drift getDrift() {
+            return drift;
+        }
+
+        /**
+         * @return how many keys the hands drifted by
+         */
+        public int getDistance() {
+            return distance;
+        }
+
+        /**
+         * @return the fraction of the corrected letters that are in
+         * dictionary words
+         */
+        public double getHitRate() {
+            return hitRate;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s by %d (%.0f%% of letters in dictionary words)",
+                                 drift.toString().toLowerCase(Locale.ROOT), distance, 100 * hitRate);
+        }
+    }
+
+    // The keyboard the text was typed on.
+    private final KeyboardLayout layout;
+
+    // The dictionary.
+    private final WordSet words;
+
+    /**
+     * Create a detector.
+     * @param layout the keyboard the text was typed on
+     * @param words the dictionary to score corrected text with
+     */
+    public ShiftDetector(KeyboardLayout layout, WordSet words) {
+        this.layout = layout;
+        this.words = words;
+    }
+
+    /**
+     * Finds the drift that best corrects some text.
+     * @param sample the mis-typed text
+     * @return the drift whose correction has the most letters in dictionary
+     * words, or the first tried, right by one, if there are none
+     */
+    public Shift detect(char[] sample) {
+        Pieces pieces = new Pieces(sample);
+        Shift best = null;
+        KeyboardLayout.Drift[] order = {KeyboardLayout.Drift.RIGHT, KeyboardLayout.Drift.LEFT,
+                                        KeyboardLayout.Drift.UP, KeyboardLayout.Drift.DOWN};
+        for (int distance = 1; distance <= MAX_DISTANCE; distance++) {
+            for (KeyboardLayout.Drift drift : order) {
+                Shift shift = score(drift, distance, sample, pieces);
+                if (best == null || shift.hits > best.hits) {
+                    best = shift;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Correct the pieces of the sample for a drift and count the letters
+     * that come out in dictionary words.
+     */
+    private Shift score(KeyboardLayout.Drift drift, int distance, char[] sample,
+                        Pieces pieces) {
+        char[] table = layout.corrections(drift, distance);
+        int letters = 0;
+        int hits = 0;
+        for (int p = 0; p < pieces.size; p++) {
+            int count = pieces.counts[p];
+            int end = pieces.starts[p] + pieces.lengths[p];
+            long hash = WordSet.start();
+            int length = 0;
+            // A piece can correct to more than one word, with punctuation
+            // between them
+            for (int i = pieces.starts[p]; i <= end; i++) {
+                char ch = i < end ? LETTERS[table[sample[i]]] : 0;
+                if (ch != 0) {
+                    hash = WordSet.next(hash, ch);
+                    length++;
+                }
+                else if (length > 0) {
+                    letters += length * count;
+                    if (words.contains(WordSet.finish(hash))) {
+                        hits += length * count;
+                    }
+                    hash = WordSet.start();
+                    length = 0;
+                }
+            }
+        }
+        return new Shift(drift, distance, hits, letters);
+    }
+
+    /**
+     * The different pieces of a sample between spaces and line breaks, and
+     * how many times each comes.  Spaces and line breaks are not on any key,
+     * so no drift changes where the pieces are, and each drift only has to
+     * correct each different piece once rather than the whole sample.  Most
+     * text has far fewer different pieces than it has words.
+     */
+    private static class Pieces {
+        // Where each piece first comes in the sample, its length and how
+        // many times it comes.
+        int[] starts = new int[1024];
+        int[] lengths = new int[1024];
+        int[] counts = new int[1024];
+        int size;
+
+        // An open addressing table of the hashes of the pieces, with the
+        // index of each piece plus 1 beside it, and 0 in empty slots.
+        private long[] hashes = new long[2048];
+        private int[] indexes = new int[2048];
+
+        Pieces(char[] sample) {
+            int start = 0;
+            long hash = WordSet.start();
+            for (int i = 0; i < sample.length; i++) {
+                char ch = sample[i];
+                if (ch > ' ') {
+                    hash = WordSet.next(hash, ch);
+                }
+                else {
+                    if (i > start) {
+                        add(start, i - start, WordSet.finish(hash));
+                    }
+                    start = i + 1;
+                    hash = WordSet.start();
+                }
+            }
+            if (sample.length > start) {
+                add(start, sample.length - start, WordSet.finish(hash));
+            }
+        }
+
+        private void add(int start, int length, long hash) {
+            int mask = hashes.length - 1;
+            int slot = slot(hash, mask);
+            while (indexes[slot] != 0) {
+                if (hashes[slot] == hash) {
+                    counts[indexes[slot] - 1]++;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            starts[size] = start;
+            lengths[size] = length;
+            counts[size] = 1;
+            size++;
+            hashes[slot] = hash;
+            indexes[slot] = size;
+            if (size * 2 >= hashes.length) {
+                grow();
+            }
+        }
+
+        private static int slot(long hash, int mask) {
+            return (int) ((hash * 0x9e3779b97f4a7c15L) >>> 32) & mask;
+        }
+
+        private void grow() {
+            long[] oldHashes = hashes;
+            int[] oldIndexes = indexes;
+            hashes = new long[oldHashes.length * 2];
+            indexes = new int[oldIndexes.length * 2];
+            int mask = hashes.length - 1;
+            for (int i = 0; i < oldHashes.length; i++) {
+                if (oldIndexes[i] != 0) {
+                    int slot = slot(oldHashes[i], mask);
+                    while (indexes[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    hashes[slot] = oldHashes[i];
+                    indexes[slot] = oldIndexes[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the start of a file to detect from.
+     * @param file a UTF-8 text file
+     * @return the first SAMPLE_SIZE bytes of the file, decoded.  A character
+     * cut off at the end is replaced.
+     * @throws IOException if the file cannot be read
+     */
+    public static char[] readSample(Path file) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(SAMPLE_SIZE);
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (bytes.hasRemaining() && in.read(bytes) >= 0) {
+                // keep reading until the sample is full or the file ends
+            }
+        }
+        bytes.flip();
+        CharBuffer chars = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(bytes);
+        char[] sample = new char[chars.remaining()];
+        chars.get(sample);
+        return sample;
+    }
+}
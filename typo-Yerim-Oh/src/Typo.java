@@ -4,127 +4,171 @@
  */
 
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.Scanner;
-import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Reads a file where the user's hands were one key to far to the right.
  * Outputs to standard output what the user intended to type.
  *
+ * The keyboard and the direction the hands drifted can be chosen with
+ * -layout and -drift before the other arguments, for example
+ * java Typo -layout dvorak -drift up file.  The layout is qwerty, azerty,
+ * dvorak, colemak or a file in the grid format described in
+ * KeyboardLayout, and the drift is left, right, up or down.  The default
+ * is qwerty and right.
+ *
+ * With -drift auto, the drift and how many keys it was, one or two, are
+ * worked out from the start of the input file by ShiftDetector, which
+ * scores each possible correction against a word list.  The word list is
+ * /usr/share/dict/words unless another is given with -words.
+ *
+ * With -bulk, the whole file is corrected as a stream of bytes instead of
+ * line by line, and written to an output file or to standard output with
+ * nothing added.  The file is read as UTF-8.  Every byte of a non-ASCII
+ * character in UTF-8 is 0x80 or above, and those bytes are passed through
+ * unchanged, so only corrections from one ASCII character to another are
+ * made in this mode.  On QWERTY, Dvorak and Colemak that is all of them.
+ *
+ * With -parallel, a large file is memory-mapped and split into chunks that
+ * are corrected on several threads, each straight into its place in the
+ * output file.
+ *
  */
 public class Typo {
-    // The map from mistyped characters to the intended characters.
-    private static Map<Character, Character> corrections = new HashMap<>();
+    // The table from mistyped characters to the intended characters, indexed
+    // by the mistyped character.  It covers every char, so a lookup is a
+    // single array read with no boxing.  Characters with no correction map
+    // to themselves.  It is chosen from the keyboard layout at startup.
+    private static char[] corrections;
     
-    private static void initCorrections() {
-        // ============== TODO:  You need to initialize this map. ==============
-    	
-    	// Upper case
-    	corrections.put('+', '_');
-    	corrections.put('_', ')');
-    	corrections.put(')', '(');
-    	corrections.put('(', '*');
-    	corrections.put('*', '&');
-    	corrections.put('&', '^');
-    	corrections.put('^', '%');
-    	corrections.put('%', '$');
-    	corrections.put('$', '#');
-    	corrections.put('#', '@');
-    	corrections.put('@', '!');
-    	corrections.put('!', '~');
-    	corrections.put('|', '}');
-    	corrections.put('}', '{');
-    	corrections.put('{', 'P');
-    	corrections.put('P', 'O');
-    	corrections.put('O', 'I');
-    	corrections.put('I', 'U');
-    	corrections.put('U', 'Y');
-    	corrections.put('Y', 'T');
-    	corrections.put('T', 'R');
-    	corrections.put('R', 'E');
-    	corrections.put('E', 'W');
-    	corrections.put('W', 'Q');
-    	corrections.put('"', ':');
-    	corrections.put(':', 'L');
-    	corrections.put('L', 'K');
-     	corrections.put('K', 'J');
-    	corrections.put('J', 'H');
-    	corrections.put('H', 'G');
-    	corrections.put('G', 'F');
-    	corrections.put('F', 'D');
-    	corrections.put('D', 'S');
-    	corrections.put('S', 'A');
-    	corrections.put('?', '>');
-    	corrections.put('>', '<');
-    	corrections.put('<', 'M');
-    	corrections.put('M', 'N');
-    	corrections.put('N', 'B');
-    	corrections.put('B', 'V');
-    	corrections.put('V', 'C');
-    	corrections.put('C', 'X');
-    	corrections.put('X', 'Z');
-    	
-    	// Lower case
-    	corrections.put('=', '-');
-    	corrections.put('-', '0');
-    	corrections.put('0', '9');
-    	corrections.put('9', '8');
-    	corrections.put('8', '7');
-    	corrections.put('7', '6');
-    	corrections.put('6', '5');
-    	corrections.put('5', '4');
-    	corrections.put('4', '3');
-    	corrections.put('3', '2');
-    	corrections.put('2', '1');
-    	corrections.put('1', '`');
-    	corrections.put('\\', ']');
-    	corrections.put(']', '[');
-    	corrections.put('[', 'p');
-    	corrections.put('p', 'o');
-    	corrections.put('o', 'i');
-    	corrections.put('i', 'u');
-    	corrections.put('u', 'y');
-    	corrections.put('y', 't');
-    	corrections.put('t', 'r');
-    	corrections.put('r', 'e');
-    	corrections.put('e', 'w');
-    	corrections.put('w', 'q');
-    	corrections.put('\'', ';');
-    	corrections.put(';', 'l');
-    	corrections.put('l', 'k');
-    	corrections.put('k', 'j');
-    	corrections.put('j', 'h');
-    	corrections.put('h', 'g');
-    	corrections.put('g', 'f');
-    	corrections.put('f', 'd');
-    	corrections.put('d', 's');
-    	corrections.put('s', 'a');
-    	corrections.put('/', '.');
-    	corrections.put('.', ',');
-    	corrections.put(',', 'm');
-    	corrections.put('m', 'n');
-    	corrections.put('n', 'b');
-    	corrections.put('b', 'v');
-    	corrections.put('v', 'c');
-    	corrections.put('c', 'x');
-    	corrections.put('x', 'z');
+    // The buffer that each line is corrected in.  It is reused for every
+    // line and only grows when a line is longer than any before it.
+    private static char[] lineBuffer = new char[256];
+    
+    // The same corrections for bytes of UTF-8, indexed by the byte's value
+    // from 0 to 255.  Bytes of non-ASCII characters map to themselves, and
+    // so do ASCII characters whose correction is not ASCII.
+    private static final byte[] byteCorrections = new byte[256];
+    
+    // The word list that -drift auto scores corrections against, unless
+    // another is given.
+    private static final String DEFAULT_WORDS = "/usr/share/dict/words";
+    
+    // The size of the buffer a file is streamed through in bulk mode.
+    private static final int BULK_BUFFER_SIZE = 1 << 20;
+    
+    // The size of each chunk in parallel mode, before it is moved to the
+    // start of a character.
+    private static final int CHUNK_SIZE = 8 << 20;
+    
+    /**
+     * Choose the corrections for a keyboard layout and the direction the
+     * hands drifted in.
+     * @param layout the keyboard layout
+     * @param drift the direction the hands drifted
+     * @param distance how many keys they drifted by
+     */
+    static void initCorrections(KeyboardLayout layout, KeyboardLayout.Drift drift,
+                                int distance) {
+    	// The table is compiled once by the layout and shared
+    	corrections = layout.corrections(drift, distance);
     	
-    	// space
-    	corrections.put(' ', ' ');
-    	    	        
-        // =====================================================================
+    	// The byte table, from the ASCII part of the character table
+    	for (int b = 0; b < 256; b++) {
+    		char ch = b < 0x80 ? corrections[b] : (char) b;
+    		byteCorrections[b] = (byte) (ch < 0x80 ? ch : b);
+    	}
     }
     
     public static void main (String[] args) {
         
-        // Initialize the HashMap
+        // Read the layout, drift and word list options, which come first
+        String layoutName = "qwerty";
+        KeyboardLayout.Drift drift = KeyboardLayout.Drift.RIGHT;
+        boolean detect = false;
+        String wordList = DEFAULT_WORDS;
+        int options = 0;
+        while (options + 1 < args.length && (args[options].equals("-layout")
+                || args[options].equals("-drift") || args[options].equals("-words"))) {
+            if (args[options].equals("-layout")) {
+                layoutName = args[options + 1];
+            }
+            else if (args[options].equals("-words")) {
+                wordList = args[options + 1];
+            }
+            else if (args[options + 1].equals("auto")) {
+                detect = true;
+            }
+            else {
+                try {
+                    drift = KeyboardLayout.Drift.valueOf(
+                            args[options + 1].toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("The drift should be left, right, up, down or auto.");
+                    return;
+                }
+            }
+            options += 2;
+        }
+        args = Arrays.copyOfRange(args, options, args.length);
+        
+        // Compile the corrections for the layout
+        KeyboardLayout layout;
+        try {
+            layout = KeyboardLayout.forName(layoutName);
+        } catch (IOException e) {
+            System.err.println("Could not read the layout " + layoutName + ": "
+                               + e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        if (detect) {
+            // The input file follows the mode, if there is one
+            int input = args.length > 0 && args[0].startsWith("-") ? 1 : 0;
+            if (input >= args.length) {
+                System.err.println("Please enter a file name when you run the program");
+                return;
+            }
+            ShiftDetector.Shift shift = detectShift(layout, wordList, args[input]);
+            if (shift == null) {
+                return;
+            }
+            System.err.println("Detected drift: " + shift);
+            initCorrections(layout, shift.getDrift(), shift.getDistance());
+        }
+        else {
+            initCorrections(layout, drift, 1);
+        }
+        
+        // Bulk mode writes nothing but the corrected file
+        if (args.length > 0 && args[0].equals("-bulk")) {
+            bulkMain(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("-parallel")) {
+            parallelMain(args);
+            return;
+        }
+        
         System.out.println("Welcome to the Typo Correction System.");
-        initCorrections();
         
         // Get the file name.  Exit if none was provided.
         if (args.length == 0) {
@@ -144,32 +188,295 @@ public class Typo {
             System.out.println("File " + args[0] + " could not be found.");
         }
     }
-
+    
     /**
-     * Correct one line by shifting the characters one to the left on the keyboard.
-     * @param line the line that was mis-typed
-     * @return the corrected line
+     * Works out how the hands drifted from the start of a file.
+     * @param layout the keyboard layout
+     * @param wordList the file name of the word list
+     * @param input the file name of the mis-typed text
+     * @return the drift that puts the most letters in dictionary words, or
+     * null if a file could not be read, after saying why
      */
-    private static String correct(String line) {
-        // ============== TODO:  You need to implement this method. ==============
-    	
-    	// Convert a String to a List of Characters in Java
-    	List<Character> chars = new ArrayList<>();
-    	// For each character in the String add it to the List
-        for (char ch : line.toCharArray()) {
-        	chars.add(ch);
+    private static ShiftDetector.Shift detectShift(KeyboardLayout layout, String wordList,
+                                                   String input) {
+        WordSet words;
+        try {
+            words = WordSet.load(Paths.get(wordList));
+        } catch (IOException e) {
+            System.err.println("Could not read the word list " + wordList + ": "
+                               + e.getMessage());
+            return null;
+        }
+        try {
+            char[] sample = ShiftDetector.readSample(Paths.get(input));
+            return new ShiftDetector(layout, words).detect(sample);
+        } catch (NoSuchFileException e) {
+            System.err.println("File " + input + " could not be found.");
+        } catch (IOException e) {
+            System.err.println("Could not read " + input + ": " + e.getMessage());
+        }
+        return null;
+    }
+    
+    /**
+     * Runs bulk mode: java Typo -bulk input-file [output-file].  Without an
+     * output file the corrected text goes to standard output.  Errors go to
+     * standard error, so they are not mixed into the text.
+     * @param args -bulk, the input file and optionally the output file
+     */
+    private static void bulkMain(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: java Typo -bulk input-file [output-file]");
+            return;
+        }
+        Path input = Paths.get(args[1]);
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            if (args.length > 2) {
+                try (FileChannel out = FileChannel.open(Paths.get(args[2]),
+                        StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    correctStream(in, out);
+                }
+            }
+            else {
+                FileChannel out = new FileOutputStream(FileDescriptor.out).getChannel();
+                correctStream(in, out);
+            }
+        } catch (NoSuchFileException e) {
+            System.err.println("File " + args[1] + " could not be found.");
+        } catch (IOException e) {
+            System.err.println("Could not correct " + args[1] + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Correct everything from one channel and write it to another, through
+     * one large direct buffer.  The bytes are corrected in the buffer, so no
+     * strings are made.
+     * @param in the mis-typed text in UTF-8
+     * @param out receives the corrected text
+     * @throws IOException if reading or writing fails
+     */
+    static void correctStream(FileChannel in, FileChannel out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BULK_BUFFER_SIZE);
+        while (in.read(buffer) >= 0) {
+            buffer.flip();
+            correct(buffer);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+    
+    /**
+     * Runs parallel mode: java Typo -parallel input-file output-file
+     * [threads].  The number of threads defaults to one per processor.
+     * Reports the throughput when it is done.  Errors go to standard error.
+     * @param args -parallel, the input and output files and optionally the
+     * number of threads
+     */
+    private static void parallelMain(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: java Typo -parallel input-file output-file [threads]");
+            return;
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length > 3) {
+            try {
+                threads = Integer.parseInt(args[3]);
+            } catch (NumberFormatException e) {
+                threads = 0;
+            }
+            if (threads < 1) {
+                System.err.println("The number of threads should be a positive number.");
+                System.err.println("Usage: java Typo -parallel input-file output-file [threads]");
+                return;
+            }
+        }
+        try (FileChannel in = FileChannel.open(Paths.get(args[1]), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(Paths.get(args[2]), StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long start = System.nanoTime();
+            correctParallel(in, out, threads);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double megabytes = in.size() / 1e6;
+            System.out.printf("Corrected %.1f MB in %.3f s (%.0f MB/s) on %d threads%n",
+                              megabytes, seconds, megabytes / seconds, threads);
+        } catch (NoSuchFileException e) {
+            System.err.println("File " + args[1] + " could not be found.");
+        } catch (IOException e) {
+            System.err.println("Could not correct " + args[1] + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Correct a whole file on a fork/join pool.  The input is split into
+     * chunks that each start at the beginning of a UTF-8 character, and each
+     * chunk is corrected from a read-only mapping of the input into a
+     * mapping of the same range of the output, which is first made as long
+     * as the input.
+     * @param in the mis-typed text in UTF-8
+     * @param out the empty output file, open for reading and writing
+     * @param threads the number of threads to use
+     * @throws IOException if reading or writing fails
+     */
+    static void correctParallel(FileChannel in, FileChannel out, int threads)
+            throws IOException {
+        correctParallel(in, out, threads, CHUNK_SIZE);
+    }
+    
+    /**
+     * Correct a whole file on a fork/join pool, in chunks of a given size.
+     * @param chunkSize the size of each chunk before it is moved to the
+     * start of a character
+     */
+    static void correctParallel(FileChannel in, FileChannel out, int threads,
+                                long chunkSize) throws IOException {
+        long size = in.size();
+        if (size == 0) {
+            return;
         }
+        // Make the output as long as the input by writing its last byte.
+        out.write(ByteBuffer.allocate(1), size - 1);
         
-        // Make an empty string
-        String lineCorrected = "";
-        // For each item in the ArrayList, use the map to get the value
-        // add it to the string lineCorrected
-        for (int i = 0; i < chars.size(); i++) {
-        	lineCorrected = lineCorrected + corrections.get(chars.get(i));
+        long[] bounds = chunkBounds(in, chunkSize);
+        int numChunks = bounds.length - 1;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new ChunkTask(in, out, bounds, 0, numChunks));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        out.force(false);
+    }
+    
+    /**
+     * Split a file into chunks that each start at the beginning of a UTF-8
+     * character.
+     * @param in a UTF-8 file that is not empty
+     * @param chunkSize the size of each chunk before it is moved to the
+     * start of a character
+     * @return the bounds of the chunks: chunk c runs from bounds[c] to
+     * bounds[c + 1].  A chunk is empty if a character is longer than the
+     * chunk size.
+     * @throws IOException if the file cannot be read
+     */
+    static long[] chunkBounds(FileChannel in, long chunkSize) throws IOException {
+        long size = in.size();
+        int numChunks = (int) ((size + chunkSize - 1) / chunkSize);
+        long[] bounds = new long[numChunks + 1];
+        ByteBuffer peek = ByteBuffer.allocate(4);
+        for (int c = 1; c < numChunks; c++) {
+            bounds[c] = characterStart(in, c * chunkSize, peek);
         }
+        bounds[numChunks] = size;
+        return bounds;
+    }
+    
+    /**
+     * @param in a UTF-8 file
+     * @param position a position in the file
+     * @param peek room for 4 bytes
+     * @return the position, moved forward past any continuation bytes to
+     * the start of the next character.  A UTF-8 character has at most 3
+     * continuation bytes.
+     * @throws IOException if the file cannot be read
+     */
+    private static long characterStart(FileChannel in, long position, ByteBuffer peek)
+            throws IOException {
+        peek.clear();
+        in.read(peek, position);
+        int i = 0;
+        while (i < 3 && i < peek.position() && (peek.get(i) & 0xC0) == 0x80) {
+            i++;
+        }
+        return position + i;
+    }
+    
+    /**
+     * Corrects a range of chunks, splitting it in half until each task has
+     * a single chunk.
+     */
+    private static class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final transient FileChannel in;
+        private final transient FileChannel out;
+        private final long[] bounds;
+        private final int from;
+        private final int to;
         
-        return lineCorrected;
+        ChunkTask(FileChannel in, FileChannel out, long[] bounds, int from, int to) {
+            this.in = in;
+            this.out = out;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+        }
         
-        // =====================================================================
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ChunkTask(in, out, bounds, from, mid),
+                          new ChunkTask(in, out, bounds, mid, to));
+                return;
+            }
+            long start = bounds[from];
+            long length = bounds[to] - start;
+            try {
+                MappedByteBuffer source = in.map(FileChannel.MapMode.READ_ONLY, start, length);
+                MappedByteBuffer target = out.map(FileChannel.MapMode.READ_WRITE, start, length);
+                for (int i = 0; i < length; i++) {
+                    target.put(i, byteCorrections[source.get(i) & 0xFF]);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    
+    /**
+     * Correct the bytes between a buffer's position and limit in place.
+     * @param buffer UTF-8 text
+     */
+    static void correct(ByteBuffer buffer) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            buffer.put(i, byteCorrections[buffer.get(i) & 0xFF]);
+        }
+    }
+
+    /**
+     * Correct one line by shifting the characters one to the left on the keyboard.
+     * @param line the line that was mis-typed
+     * @return the corrected line
+     */
+    static String correct(String line) {
+    	// Copy the line into the reusable buffer, growing it if needed
+    	int length = line.length();
+    	if (lineBuffer.length < length) {
+    		lineBuffer = new char[Math.max(length, lineBuffer.length * 2)];
+    	}
+    	line.getChars(0, length, lineBuffer, 0);
+    	
+    	// Correct the characters in place and make one string of the result
+    	correct(lineBuffer, 0, length);
+        return new String(lineBuffer, 0, length);
+    }
+    
+    /**
+     * Correct characters in place by looking each one up in the table.
+     * @param chars the characters that were mis-typed
+     * @param from the index of the first character to correct
+     * @param to the index after the last character to correct
+     */
+    static void correct(char[] chars, int from, int to) {
+    	for (int i = from; i < to; i++) {
+    		chars[i] = corrections[chars[i]];
+    	}
     }
 }
@@ -0,0 +1,141 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A set of dictionary words for checking whether text is readable.  Words
+ * are compared ignoring case.
+ *
+ * The set does not keep the words themselves, only a 64 bit hash of each,
+ * in an open addressing table of longs.  A word list of a few hundred
+ * thousand words takes a few megabytes, and a word is looked up by hashing
+ * its characters as they are read, so checking the words in some text
+ * makes no strings.  Two different words have the same hash so rarely that
+ * it does not matter when scoring text.
+ */
+public class WordSet {
+    // The FNV-1a hash constants.
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // The hashes of the words, with 0 in empty slots.  A word whose hash is
+    // 0 is stored as 1.  The length is a power of two at least twice the
+    // number of words.
+    private long[] table = new long[1024];
+    private int size;
+
+    /**
+     * Read a word list with one word on each line.
+     * @param file the word list, in UTF-8
+     * @return the set of the words
+     * @throws IOException if the file cannot be read
+     */
+    public static WordSet load(Path file) throws IOException {
+        WordSet words = new WordSet();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String word = line.trim();
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Add a word to the set.
+     * @param word the word
+     */
+    public void add(CharSequence word) {
+        long hash = start();
+        for (int i = 0; i < word.length(); i++) {
+            hash = next(hash, Character.toLowerCase(word.charAt(i)));
+        }
+        if (size * 2 >= table.length) {
+            grow();
+        }
+        if (insert(table, finish(hash))) {
+            size++;
+        }
+    }
+
+    /**
+     * @return the number of different words in the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param hash the hash of a word, from start, next and finish
+     * @return true if the word is in the set
+     */
+    public boolean contains(long hash) {
+        int mask = table.length - 1;
+        for (int slot = slot(hash, mask); table[slot] != 0; slot = (slot + 1) & mask) {
+            if (table[slot] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the hash of an empty word, to which characters are added with
+     * next
+     */
+    public static long start() {
+        return FNV_OFFSET;
+    }
+
+    /**
+     * @param hash the hash of the word so far
+     * @param ch the next character of the word, in lower case
+     * @return the hash with the character added
+     */
+    public static long next(long hash, char ch) {
+        return (hash ^ ch) * FNV_PRIME;
+    }
+
+    /**
+     * @param hash the hash of a whole word
+     * @return the hash as it is kept in the table, which is never 0
+     */
+    public static long finish(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static int slot(long hash, int mask) {
+        return (int) ((hash * 0x9e3779b97f4a7c15L) >>> 32) & mask;
+    }
+
+    /**
+     * @return true if the hash was not in the table already
+     */
+    private static boolean insert(long[] table, long hash) {
+        int mask = table.length - 1;
+        int slot = slot(hash, mask);
+        while (table[slot] != 0) {
+            if (table[slot] == hash) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = hash;
+        return true;
+    }
+
+    private void grow() {
+        long[] grown = new long[table.length * 2];
+        for (long hash : table) {
+            if (hash != 0) {
+                insert(grown, hash);
+            }
+        }
+        table = grown;
+    }
+}
@@ -0,0 +1,150 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class KeyboardLayoutTest {
+
+    @Test
+    void testTablesMatchGrid() throws Exception {
+        /*
+         * Purpose: Test every compiled table against the keys of its grid.
+         * Method: corrections Initialization: The built in layouts.
+         * Parameters: Every drift, by 1 and 2 keys Correct result: A
+         * character on a key becomes the character at the same level that
+         * many keys the other way, and every character with no key there,
+         * or not on the keyboard at all, is left as it is
+         */
+        for (String name : KeyboardLayout.BUILT_IN.keySet()) {
+            List<String> rows = new ArrayList<>();
+            for (String line : KeyboardLayout.BUILT_IN.get(name).split("\n")) {
+                rows.add(line);
+            }
+            KeyboardLayout layout = KeyboardLayout.forName(name);
+            for (KeyboardLayout.Drift drift : KeyboardLayout.Drift.values()) {
+                for (int distance = 1; distance <= 2; distance++) {
+                    char[] expected = new char[Character.MAX_VALUE + 1];
+                    for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+                        expected[ch] = (char) ch;
+                    }
+                    for (int line = 0; line < rows.size(); line++) {
+                        String row = rows.get(line);
+                        for (int column = 0; column < row.length(); column++) {
+                            // The intended key is on the line two further
+                            // on for each row, to stay at the same level
+                            char intended = keyAt(rows,
+                                    line - 2 * drift.rows * distance,
+                                    column - drift.columns * distance);
+                            if (row.charAt(column) != ' ' && intended != ' ') {
+                                expected[row.charAt(column)] = intended;
+                            }
+                        }
+                    }
+                    assertArrayEquals(expected, layout.corrections(drift, distance));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCorrections() throws Exception {
+        /*
+         * Purpose: Test some corrections worked out by hand.  Method:
+         * corrections Initialization: The built in layouts.  Parameters: A
+         * few keys for each drift and distance Correct result: The key the
+         * hands meant to press
+         */
+        KeyboardLayout qwerty = KeyboardLayout.forName("qwerty");
+        assertEquals('q', qwerty.corrections(KeyboardLayout.Drift.RIGHT, 1)['w']);
+        assertEquals('Q', qwerty.corrections(KeyboardLayout.Drift.RIGHT, 2)['E']);
+        assertEquals('w', qwerty.corrections(KeyboardLayout.Drift.LEFT, 1)['q']);
+        assertEquals('a', qwerty.corrections(KeyboardLayout.Drift.UP, 1)['q']);
+        assertEquals('1', qwerty.corrections(KeyboardLayout.Drift.DOWN, 2)['a']);
+        assertEquals('q', qwerty.corrections(KeyboardLayout.Drift.RIGHT, 1)['q']);
+        assertEquals('\'', KeyboardLayout.forName("dvorak")
+                .corrections(KeyboardLayout.Drift.RIGHT, 1)[',']);
+        assertEquals('a', KeyboardLayout.forName("azerty")
+                .corrections(KeyboardLayout.Drift.RIGHT, 1)['z']);
+        assertEquals('w', KeyboardLayout.forName("Colemak")
+                .corrections(KeyboardLayout.Drift.RIGHT, 1)['f']);
+    }
+
+    @Test
+    void testCompiledOnce() throws Exception {
+        /*
+         * Purpose: Test that layouts and tables are kept once made.  Method:
+         * forName, corrections Initialization: None Parameters: qwerty in
+         * two cases, and the same drift twice Correct result: The same
+         * layout and the same table each time
+         */
+        KeyboardLayout layout = KeyboardLayout.forName("qwerty");
+        assertSame(layout, KeyboardLayout.forName("QWERTY"));
+        assertEquals("qwerty", layout.getName());
+        assertSame(layout.corrections(KeyboardLayout.Drift.UP, 2),
+                   layout.corrections(KeyboardLayout.Drift.UP, 2));
+        assertThrows(IllegalArgumentException.class,
+                     () -> layout.corrections(KeyboardLayout.Drift.UP, 0));
+    }
+
+    @Test
+    void testLayoutFile() throws Exception {
+        /*
+         * Purpose: Test reading a layout from a file.  Method: forName
+         * Initialization: A file with a comment, a blank line and a row of
+         * three keys.  Parameters: The file name, and a file that does not
+         * exist Correct result: A layout named after the file that corrects
+         * the row, and NoSuchFileException for the missing file
+         */
+        Path file = Files.createTempFile("layout", ".txt");
+        try {
+            Files.write(file, Arrays.asList("# A tiny keyboard", "", "abc", "ABC"),
+                        StandardCharsets.UTF_8);
+            KeyboardLayout layout = KeyboardLayout.forName(file.toString());
+            assertEquals(file.getFileName().toString(), layout.getName());
+            char[] table = layout.corrections(KeyboardLayout.Drift.RIGHT, 1);
+            assertEquals("aabAAB#", new String(new char[] {
+                    table['a'], table['b'], table['c'],
+                    table['A'], table['B'], table['C'], table['#']}));
+        } finally {
+            Files.delete(file);
+        }
+        Path missing = file.resolveSibling(file.getFileName() + ".missing");
+        assertThrows(NoSuchFileException.class,
+                     () -> KeyboardLayout.forName(missing.toString()));
+    }
+
+    @Test
+    void testInvalidGrid() {
+        /*
+         * Purpose: Test the grids that are refused.  Method: the
+         * constructor Initialization: None Parameters: A row with no line
+         * for shift, and a character on two keys Correct result:
+         * IllegalArgumentException saying what is wrong
+         */
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new KeyboardLayout("odd", Arrays.asList("abc", "ABC", "def")));
+        assertEquals("Layout odd has a row with no line for shift", e.getMessage());
+        e = assertThrows(IllegalArgumentException.class,
+                () -> new KeyboardLayout("twice", Arrays.asList("abc", "ABa")));
+        assertEquals("Layout twice has a on more than one key", e.getMessage());
+    }
+
+    /**
+     * @return the character at a line and column of a grid, or a space if
+     * there is no key there
+     */
+    private static char keyAt(List<String> rows, int line, int column) {
+        if (line < 0 || line >= rows.size() || column < 0
+                || column >= rows.get(line).length()) {
+            return ' ';
+        }
+        return rows.get(line).charAt(column);
+    }
+}
@@ -0,0 +1,138 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+class ShiftDetectorTest {
+
+    // The text that the tests garble, every word of which is in the
+    // dictionary.
+    private static final String TEXT = "The quick brown fox jumps over the lazy dog.\n"
+            + "Pack my box with five dozen liquor jugs, said the wizard.\n"
+            + "How vexingly quick daft zebras jump!  Sphinx of black quartz, "
+            + "judge my vow.\n";
+
+    @Test
+    void testDetectEveryDrift() throws Exception {
+        /*
+         * Purpose: Test that each drift is found from the text it garbles.
+         * Method: detect Initialization: A dictionary of the words in a few
+         * pangrams, and the pangrams typed with drifted hands on each built
+         * in layout.  Parameters: Every drift by 1 key, and left and right
+         * by 2 keys.  Up and down by 2 are left out: with three rows of
+         * letters, both only swap the top and bottom rows, so they correct
+         * the letters in the same way.  Correct result: The drift and
+         * distance the text was typed with.  Keys pushed off the edge of
+         * the keyboard are typed as they were meant, so some words stay
+         * wrong after correction, and only some of the letters need to be
+         * in dictionary words
+         */
+        WordSet words = dictionary();
+        for (String name : new String[] {"qwerty", "azerty", "dvorak", "colemak"}) {
+            KeyboardLayout layout = KeyboardLayout.forName(name);
+            ShiftDetector detector = new ShiftDetector(layout, words);
+            for (KeyboardLayout.Drift drift : KeyboardLayout.Drift.values()) {
+                int maxDistance = drift.rows == 0 ? 2 : 1;
+                for (int distance = 1; distance <= maxDistance; distance++) {
+                    char[] typed = garble(layout, drift, distance);
+                    ShiftDetector.Shift shift = detector.detect(typed);
+                    String what = name + " " + drift + " by " + distance;
+                    assertEquals(drift, shift.getDrift(), what);
+                    assertEquals(distance, shift.getDistance(), what);
+                    assertTrue(shift.getHitRate() > 0, what);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testNoWords() throws Exception {
+        /*
+         * Purpose: Test text in which no drift finds a word.  Method:
+         * detect Initialization: An empty dictionary.  Parameters: The
+         * pangrams, and no text at all Correct result: Right by one, with
+         * none of the letters in dictionary words
+         */
+        ShiftDetector detector =
+                new ShiftDetector(KeyboardLayout.forName("qwerty"), new WordSet());
+        for (String text : new String[] {TEXT, ""}) {
+            ShiftDetector.Shift shift = detector.detect(text.toCharArray());
+            assertEquals(KeyboardLayout.Drift.RIGHT, shift.getDrift());
+            assertEquals(1, shift.getDistance());
+            assertEquals(0.0, shift.getHitRate());
+            assertEquals("right by 1 (0% of letters in dictionary words)", shift.toString());
+        }
+    }
+
+    @Test
+    void testReadSample() throws Exception {
+        /*
+         * Purpose: Test reading the start of a file.  Method: readSample
+         * Initialization: A file holding garbled text and then more than a
+         * sample's worth of spaces, with a 2 byte character cut in half at
+         * the end of the sample.  Parameters: None Correct result: The
+         * sample ends with a replacement character, and the drift found from
+         * it is the one the text was typed with
+         */
+        KeyboardLayout layout = KeyboardLayout.forName("qwerty");
+        String typed = new String(garble(layout, KeyboardLayout.Drift.UP, 1));
+        byte[] bytes = new byte[ShiftDetector.SAMPLE_SIZE + 10];
+        byte[] text = typed.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(text, 0, bytes, 0, text.length);
+        for (int i = text.length; i < bytes.length; i++) {
+            bytes[i] = ' ';
+        }
+        byte[] cut = "\u00e9".getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(cut, 0, bytes, ShiftDetector.SAMPLE_SIZE - 1, cut.length);
+        Path file = Files.createTempFile("typo", ".txt");
+        try {
+            Files.write(file, bytes);
+            char[] sample = ShiftDetector.readSample(file);
+            assertEquals('\ufffd', sample[sample.length - 1]);
+            ShiftDetector.Shift shift = new ShiftDetector(layout, dictionary()).detect(sample);
+            assertEquals(KeyboardLayout.Drift.UP, shift.getDrift());
+            assertEquals(1, shift.getDistance());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * @return a dictionary of the words in the text
+     */
+    private static WordSet dictionary() {
+        WordSet words = new WordSet();
+        for (String word : TEXT.split("[^A-Za-z]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Types the text with hands that drifted.  Each key pressed is the
+     * intended key moved in the direction of the drift, which is where the
+     * table for the opposite drift sends it.
+     * @return the text as it was typed
+     */
+    private static char[] garble(KeyboardLayout layout, KeyboardLayout.Drift drift,
+                                 int distance) {
+        KeyboardLayout.Drift opposite;
+        switch (drift) {
+        case LEFT: opposite = KeyboardLayout.Drift.RIGHT; break;
+        case RIGHT: opposite = KeyboardLayout.Drift.LEFT; break;
+        case UP: opposite = KeyboardLayout.Drift.DOWN; break;
+        default: opposite = KeyboardLayout.Drift.UP; break;
+        }
+        char[] table = layout.corrections(opposite, distance);
+        char[] typed = TEXT.toCharArray();
+        for (int i = 0; i < typed.length; i++) {
+            typed[i] = table[typed[i]];
+        }
+        return typed;
+    }
+}
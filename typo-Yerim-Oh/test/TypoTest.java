@@ -0,0 +1,211 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TypoTest {
+
+    // The corrections of the original map, as pairs of the mistyped
+    // character and the intended one.
+    private static final String[] QWERTY_RIGHT = {
+        "+_", "_)", ")(", "(*", "*&", "&^", "^%", "%$", "$#", "#@", "@!", "!~",
+        "|}", "}{", "{P", "PO", "OI", "IU", "UY", "YT", "TR", "RE", "EW", "WQ",
+        "\":", ":L", "LK", "KJ", "JH", "HG", "GF", "FD", "DS", "SA",
+        "?>", "><", "<M", "MN", "NB", "BV", "VC", "CX", "XZ",
+        "=-", "-0", "09", "98", "87", "76", "65", "54", "43", "32", "21", "1`",
+        "\\]", "][", "[p", "po", "oi", "iu", "uy", "yt", "tr", "re", "ew", "wq",
+        "';", ";l", "lk", "kj", "jh", "hg", "gf", "fd", "ds", "sa",
+        "/.", ".,", ",m", "mn", "nb", "bv", "vc", "cx", "xz",
+        "  "
+    };
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Typo.initCorrections(KeyboardLayout.forName("qwerty"),
+                             KeyboardLayout.Drift.RIGHT, 1);
+    }
+
+    @Test
+    void testCorrectLine() {
+        /*
+         * Purpose: Test correcting the lines of the sample file.  Method:
+         * correct Initialization: QWERTY, drifted right by one key.
+         * Parameters: The mis-typed lines of test1.txt Correct result: The
+         * lines that were meant
+         */
+        assertEquals("Mount Holyoke", Typo.correct("<pimy Jp;uplr"));
+        assertEquals("Hello, world!", Typo.correct("Jr;;p. ept;f@"));
+        assertEquals("Programming is fun!", Typo.correct("{tphts,,omh od gim@"));
+        assertEquals("", Typo.correct(""));
+    }
+
+    @Test
+    void testTableMatchesOriginalMap() {
+        /*
+         * Purpose: Test the char table against the map it replaced.
+         * Method: correct Initialization: QWERTY, drifted right by one key.
+         * Parameters: Every char from 0 to 0xFFFF Correct result: Each
+         * character the map corrected becomes what the map gave, and every
+         * other character, which the map turned into "null", is left as it
+         * is
+         */
+        char[] expected = new char[Character.MAX_VALUE + 1];
+        for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+            expected[ch] = (char) ch;
+        }
+        for (String pair : QWERTY_RIGHT) {
+            expected[pair.charAt(0)] = pair.charAt(1);
+        }
+        char[] chars = new char[Character.MAX_VALUE + 1];
+        for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+            chars[ch] = (char) ch;
+        }
+        Typo.correct(chars, 0, chars.length);
+        for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+            assertEquals(expected[ch], chars[ch], "char " + ch);
+        }
+        assertEquals("\tq\u00e9\u4e2d", Typo.correct("\tw\u00e9\u4e2d"));
+    }
+
+    @Test
+    void testCorrectRange() {
+        /*
+         * Purpose: Test that only the given range is corrected.  Method:
+         * correct Initialization: QWERTY, drifted right by one key.
+         * Parameters: The middle 3 characters of "wwwww" Correct result:
+         * "wqqqw"
+         */
+        char[] chars = "wwwww".toCharArray();
+        Typo.correct(chars, 1, 4);
+        assertEquals("wqqqw", new String(chars));
+    }
+
+    @Test
+    void testByteTable() throws Exception {
+        /*
+         * Purpose: Test the byte table used in bulk mode against the char
+         * table.  Method: correct(ByteBuffer) Initialization: QWERTY and
+         * AZERTY, drifted right by one key.  Parameters: Every byte from 0
+         * to 255 Correct result: An ASCII byte is corrected as the char
+         * table corrects it when the correction is also ASCII, and every
+         * other byte is left as it is, so AZERTY's & is not changed into
+         * the non-ASCII character to its left
+         */
+        for (String name : new String[] {"qwerty", "azerty"}) {
+            KeyboardLayout layout = KeyboardLayout.forName(name);
+            Typo.initCorrections(layout, KeyboardLayout.Drift.RIGHT, 1);
+            char[] table = layout.corrections(KeyboardLayout.Drift.RIGHT, 1);
+            ByteBuffer buffer = ByteBuffer.allocate(256);
+            for (int b = 0; b < 256; b++) {
+                buffer.put((byte) b);
+            }
+            buffer.flip();
+            Typo.correct(buffer);
+            for (int b = 0; b < 256; b++) {
+                int expected = b < 0x80 && table[b] < 0x80 ? table[b] : b;
+                assertEquals(expected, buffer.get(b) & 0xFF, name + " byte " + b);
+            }
+        }
+        assertEquals('\u00b2', KeyboardLayout.forName("azerty")
+                .corrections(KeyboardLayout.Drift.RIGHT, 1)['&']);
+        assertEquals("&", correctBytes("&"));
+    }
+
+    @Test
+    void testBulkPassesMultiByteCharacters() throws Exception {
+        /*
+         * Purpose: Test that bulk mode leaves the bytes of non-ASCII
+         * characters alone.  Method: correctStream, correct(ByteBuffer)
+         * Initialization: QWERTY, drifted right by one key.  Parameters:
+         * Text mixing ASCII with 2, 3 and 4 byte UTF-8 characters, and a
+         * buffer whose position and limit leave out its first and last
+         * bytes Correct result: Only the ASCII characters are corrected, and
+         * only between the position and the limit
+         */
+        String typed = "w\u00e9e \u4e2dr\ud83d\ude00t\n";
+        assertEquals("q\u00e9w \u4e2de\ud83d\ude00r\n", correctBytes(typed));
+
+        ByteBuffer buffer = ByteBuffer.wrap("wwww".getBytes(StandardCharsets.US_ASCII));
+        buffer.position(1).limit(3);
+        Typo.correct(buffer);
+        assertEquals("wqqw", new String(buffer.array(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void testParallelChunkBoundaries() throws Exception {
+        /*
+         * Purpose: Test that parallel mode splits a file only between
+         * characters and corrects it as bulk mode does.  Method:
+         * chunkBounds, correctParallel Initialization: QWERTY, drifted right
+         * by one key, and 300 lines mixing ASCII with 2, 3 and 4 byte UTF-8
+         * characters at shifting offsets.  Parameters: Chunks of 1 to 9
+         * bytes and of 4,096 bytes, on 3 threads Correct result: Every chunk
+         * starts at the first byte of a character, and the output is the
+         * same as bulk mode's
+         */
+        StringBuilder typed = new StringBuilder();
+        for (int line = 0; line < 300; line++) {
+            for (int i = 0; i < line % 7; i++) {
+                typed.append('w');
+            }
+            typed.append("\u00e9e \u4e2d\u6587r\ud83d\ude00t\n");
+        }
+        byte[] bytes = typed.toString().getBytes(StandardCharsets.UTF_8);
+        String expected = correctBytes(typed.toString());
+        Path input = Files.createTempFile("typo", ".txt");
+        Path output = Files.createTempFile("typo", ".txt");
+        try {
+            Files.write(input, bytes);
+            for (long chunkSize : new long[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 4096}) {
+                try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(output, StandardOpenOption.READ,
+                             StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    long[] bounds = Typo.chunkBounds(in, chunkSize);
+                    assertEquals(0, bounds[0]);
+                    assertEquals(bytes.length, bounds[bounds.length - 1]);
+                    for (int c = 1; c < bounds.length; c++) {
+                        assertTrue(bounds[c - 1] <= bounds[c]);
+                        assertTrue(bounds[c] - c * chunkSize < 4);
+                        if (bounds[c] < bytes.length) {
+                            assertTrue((bytes[(int) bounds[c]] & 0xC0) != 0x80,
+                                       "chunk " + c + " of " + chunkSize);
+                        }
+                    }
+                    Typo.correctParallel(in, out, 3, chunkSize);
+                }
+                assertEquals(expected, new String(Files.readAllBytes(output),
+                                                  StandardCharsets.UTF_8));
+            }
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    /**
+     * Corrects text in bulk mode, through a pair of files.
+     * @return the corrected text
+     */
+    private static String correctBytes(String typed) throws Exception {
+        Path input = Files.createTempFile("typo", ".txt");
+        Path output = Files.createTempFile("typo", ".txt");
+        try {
+            Files.write(input, typed.getBytes(StandardCharsets.UTF_8));
+            try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE)) {
+                Typo.correctStream(in, out);
+            }
+            return new String(Files.readAllBytes(output), StandardCharsets.UTF_8);
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+}